@@ -0,0 +1,403 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRAccumulator.java
+ * Execution:    java DRAccumulator < tinyDouble1D.txt
+ * Dependencies: DRStats.java
+ *               DRArrayIO.java
+ *               DROut.java
+ *
+ * Streaming statistics in constant memory.
+ *
+ * An accumulator takes values one at a time or in batches and keeps
+ * the count, minimum, maximum, a compensated sum, the running mean and
+ * the sum of squared deviations (and, if asked, the third and fourth
+ * central moments). Two accumulators merge with the pairwise formulas
+ * of Chan, Golub and LeVeque and of Pébay, so data can be split across
+ * threads or processes and the partial results combined afterwards.
+ *
+ * % java DRAccumulator < tinyDouble1D.txt
+ * n = 5, min = 1.000, max = 5.000, mean = 3.000, stddev = 1.581
+ * skewness  0.000
+ * kurtosis -1.300
+ *
+ ***************************************************************************/
+
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code DRAccumulator} class is a mutable, mergeable summary of a
+ * stream of doubles. It is not thread-safe: give each thread its own
+ * accumulator and {@link #merge} them at the end. An accumulator can be
+ * saved with {@link #toBytes()} and restored with {@link #fromBytes}
+ * to merge results from other processes.
+ * <p>
+ * As in {@link DRStats}, if any value is {@code NaN} then the minimum,
+ * maximum, sum, mean and variances are {@code NaN}.
+ */
+public final class DRAccumulator {
+
+    // layout version of toBytes()
+    private static final byte VERSION = 1;
+
+    private final boolean moments;  // whether m3 and m4 are kept
+    private long n;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private boolean nan;
+    private double sum;             // Neumaier sum and its compensation
+    private double c;
+    private double mean;
+    private double m2;              // sums of powers of deviations from the mean
+    private double m3;
+    private double m4;
+
+    /**
+     * Initializes an empty accumulator of count, minimum, maximum, sum,
+     * mean and variance.
+     */
+    public DRAccumulator() {
+        this(false);
+    }
+
+    /**
+     * Initializes an empty accumulator, optionally also keeping the third
+     * and fourth moments for {@link #skewness()} and {@link #kurtosis()}.
+     *
+     * @param moments whether to keep the higher moments
+     */
+    public DRAccumulator(boolean moments) {
+        this.moments = moments;
+    }
+
+    // an accumulator of n values with the given statistics, without higher moments
+    static DRAccumulator of(long n, double min, double max, boolean nan,
+                            double sum, double c, double mean, double m2) {
+        DRAccumulator acc = new DRAccumulator();
+        acc.n = n;
+        acc.min = min;
+        acc.max = max;
+        acc.nan = nan;
+        acc.sum = sum;
+        acc.c = c;
+        acc.mean = mean;
+        acc.m2 = m2;
+        return acc;
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param x the value
+     */
+    public void add(double x) {
+        if (x != x) nan = true;
+        if (x < min) min = x;
+        if (x > max) max = x;
+        addToSum(x);
+
+        long n1 = n;
+        n++;
+        double delta = x - mean;
+        double deltaN = delta / n;
+        double term = delta * deltaN * n1;
+        mean += deltaN;
+        if (moments) {
+            double deltaN2 = deltaN * deltaN;
+            m4 += term * deltaN2 * ((double) n * n - 3.0 * n + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+            m3 += term * deltaN * (n - 2) - 3 * deltaN * m2;
+        }
+        m2 += term;
+    }
+
+    /**
+     * Adds all values in the specified array.
+     *
+     * @param a the array
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public void addAll(double[] a) {
+        validateNotNull(a);
+        addAll(a, 0, a.length);
+    }
+
+    /**
+     * Adds the values in the specified subarray.
+     *
+     * @param a the array
+     * @param lo the left endpoint of the subarray (inclusive)
+     * @param hi the right endpoint of the subarray (exclusive)
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo <= hi) && (hi <= a.length)}
+     */
+    public void addAll(double[] a, int lo, int hi) {
+        validateNotNull(a);
+        if (lo < 0 || hi > a.length || lo > hi)
+            throw new IllegalArgumentException("subarray indices out of bounds: [" + lo + ", " + hi + ")");
+        for (int i = lo; i < hi; i++)
+            add(a[i]);
+    }
+
+    /**
+     * Adds all values in the specified array.
+     *
+     * @param a the array
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public void addAll(int[] a) {
+        validateNotNull(a);
+        for (int i = 0; i < a.length; i++)
+            add(a[i]);
+    }
+
+    /**
+     * Adds the values summarized by {@code that} to this accumulator, as
+     * if they had been added here one at a time. {@code that} is not
+     * changed.
+     *
+     * @param that the other accumulator
+     * @throws IllegalArgumentException if {@code that} is {@code null}, or
+     *         it keeps the higher moments and this accumulator does not
+     */
+    public void merge(DRAccumulator that) {
+        validateNotNull(that);
+        if (moments && !that.moments)
+            throw new IllegalArgumentException("cannot merge an accumulator without higher moments");
+        if (that.n == 0) return;
+        if (n == 0) {
+            copyFrom(that);
+            return;
+        }
+
+        nan |= that.nan;
+        min = Math.min(min, that.min);
+        max = Math.max(max, that.max);
+        addToSum(that.sum);
+        addToSum(that.c);
+
+        double na = n;
+        double nb = that.n;
+        double total = na + nb;
+        double delta = that.mean - mean;
+        double delta2 = delta * delta;
+        double newMean = mean + delta * nb / total;
+        double newM2 = m2 + that.m2 + delta2 * na * nb / total;
+        if (moments) {
+            double newM3 = m3 + that.m3
+                + delta2 * delta * na * nb * (na - nb) / (total * total)
+                + 3 * delta * (na * that.m2 - nb * m2) / total;
+            double newM4 = m4 + that.m4
+                + delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (total * total * total)
+                + 6 * delta2 * (na * na * that.m2 + nb * nb * m2) / (total * total)
+                + 4 * delta * (na * that.m3 - nb * m3) / total;
+            m3 = newM3;
+            m4 = newM4;
+        }
+        n += that.n;
+        mean = newMean;
+        m2 = newM2;
+    }
+
+    /**
+     * Returns the number of values added.
+     */
+    public long count() {
+        return n;
+    }
+
+    /**
+     * Returns the minimum value; {@code Double.POSITIVE_INFINITY} if none.
+     */
+    public double min() {
+        return nan ? Double.NaN : min;
+    }
+
+    /**
+     * Returns the maximum value; {@code Double.NEGATIVE_INFINITY} if none.
+     */
+    public double max() {
+        return nan ? Double.NaN : max;
+    }
+
+    /**
+     * Returns the sum of the values, accurate to about one rounding error
+     * however many values were added.
+     */
+    public double sum() {
+        if (nan) return Double.NaN;
+        if (Double.isInfinite(sum)) return sum;
+        return sum + c;
+    }
+
+    /**
+     * Returns the average value; {@code Double.NaN} if none.
+     */
+    public double mean() {
+        if (n == 0) return Double.NaN;
+        return sum() / n;
+    }
+
+    /**
+     * Returns the sample variance; {@code Double.NaN} if fewer than 2 values.
+     */
+    public double var() {
+        if (n < 2) return Double.NaN;
+        return m2 / (n - 1);
+    }
+
+    /**
+     * Returns the population variance; {@code Double.NaN} if none.
+     */
+    public double varp() {
+        if (n == 0) return Double.NaN;
+        return m2 / n;
+    }
+
+    /**
+     * Returns the sample standard deviation.
+     */
+    public double stddev() {
+        return Math.sqrt(var());
+    }
+
+    /**
+     * Returns the population standard deviation.
+     */
+    public double stddevp() {
+        return Math.sqrt(varp());
+    }
+
+    /**
+     * Returns the (population) skewness, m3 / m2^(3/2).
+     *
+     * @throws IllegalStateException unless higher moments are kept
+     */
+    public double skewness() {
+        validateMoments();
+        if (n == 0) return Double.NaN;
+        return Math.sqrt((double) n) * m3 / Math.pow(m2, 1.5);
+    }
+
+    /**
+     * Returns the (population) excess kurtosis, m4 / m2^2 - 3.
+     *
+     * @throws IllegalStateException unless higher moments are kept
+     */
+    public double kurtosis() {
+        validateMoments();
+        if (n == 0) return Double.NaN;
+        return n * m4 / (m2 * m2) - 3.0;
+    }
+
+    /**
+     * Returns an immutable snapshot of the count, minimum, maximum, sum,
+     * mean and variances.
+     */
+    public DRStats.Summary summary() {
+        return new DRStats.Summary(n, min(), max(), sum(), nan ? Double.NaN : m2);
+    }
+
+    /**
+     * Returns the state of this accumulator as bytes, for
+     * {@link #fromBytes} in this or another process.
+     */
+    public byte[] toBytes() {
+        ByteBuffer buf = ByteBuffer.allocate(2 + 8 * 9);
+        buf.put(VERSION);
+        buf.put((byte) ((moments ? 1 : 0) | (nan ? 2 : 0)));
+        buf.putLong(n);
+        buf.putDouble(min);
+        buf.putDouble(max);
+        buf.putDouble(sum);
+        buf.putDouble(c);
+        buf.putDouble(mean);
+        buf.putDouble(m2);
+        buf.putDouble(m3);
+        buf.putDouble(m4);
+        return buf.array();
+    }
+
+    /**
+     * Returns an accumulator restored from the output of {@link #toBytes()}.
+     *
+     * @param bytes the saved state
+     * @throws IllegalArgumentException if {@code bytes} is not a saved accumulator
+     */
+    public static DRAccumulator fromBytes(byte[] bytes) {
+        validateNotNull(bytes);
+        if (bytes.length != 2 + 8 * 9 || bytes[0] != VERSION)
+            throw new IllegalArgumentException("not a saved accumulator");
+        ByteBuffer buf = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+        byte flags = buf.get();
+        DRAccumulator acc = new DRAccumulator((flags & 1) != 0);
+        acc.nan = (flags & 2) != 0;
+        acc.n = buf.getLong();
+        acc.min = buf.getDouble();
+        acc.max = buf.getDouble();
+        acc.sum = buf.getDouble();
+        acc.c = buf.getDouble();
+        acc.mean = buf.getDouble();
+        acc.m2 = buf.getDouble();
+        acc.m3 = buf.getDouble();
+        acc.m4 = buf.getDouble();
+        return acc;
+    }
+
+    /**
+     * Returns a one-line description of the statistics.
+     */
+    @Override
+    public String toString() {
+        return summary().toString();
+    }
+
+    // Neumaier's compensated summation step
+    private void addToSum(double x) {
+        double t = sum + x;
+        if (Math.abs(sum) >= Math.abs(x)) c += (sum - t) + x;
+        else                              c += (x - t) + sum;
+        sum = t;
+    }
+
+    private void copyFrom(DRAccumulator that) {
+        n = that.n;
+        min = that.min;
+        max = that.max;
+        nan = that.nan;
+        sum = that.sum;
+        c = that.c;
+        mean = that.mean;
+        m2 = that.m2;
+        m3 = that.m3;
+        m4 = that.m4;
+    }
+
+    private void validateMoments() {
+        if (!moments)
+            throw new IllegalStateException("higher moments are not kept by this accumulator");
+    }
+
+    private static void validateNotNull(Object x) {
+        if (x == null)
+            throw new IllegalArgumentException("argument is null");
+    }
+
+    /**
+     * Reads an array of doubles from standard input, accumulates its two
+     * halves separately, merges them, and prints the statistics.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        double[] a = DRArrayIO.readDouble1D();
+        DRAccumulator left = new DRAccumulator(true);
+        DRAccumulator right = new DRAccumulator(true);
+        left.addAll(a, 0, a.length / 2);
+        right.addAll(a, a.length / 2, a.length);
+        left.merge(DRAccumulator.fromBytes(right.toBytes()));
+        DROut.println(left);
+        DROut.printf("skewness %6.3f\n", left.skewness());
+        DROut.printf("kurtosis %6.3f\n", left.kurtosis());
+    }
+}
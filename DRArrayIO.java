@@ -5,11 +5,22 @@
  * Execution:     java DRArrayIO < input.txt
  * Dependencies:  DROut.java
  *                DRIn.java
+ *                DRDoubleMatrix.java
+ *                DRIntMatrix.java
+ *                DRBooleanMatrix.java
+ *                DRBitMatrix.java
+ *                DRSparseCOO.java
+ *                DRSparseCSR.java
+ *                DRBigDoubleArray.java
+ *                DRIntCodec.java
  *
  *
  * A library for reading in 1D and 2D arrays of integers, doubles
- * and booleans from standard input and printing them out to
- * standard output.
+ * and booleans (and the narrower or wider floats, shorts, bytes and
+ * longs) from standard input and printing them out to
+ * standard output, and for saving them in a compact binary format
+ * that loads back at disk speed through memory-mapped files. NumPy
+ * .npy files can be read and written directly.
  *
  * % more tinyDouble1D.txt
  * 5
@@ -29,14 +40,77 @@
  * 0   1   1
  * 1   0   0
  *
+ * Sparse matrices are given as "m n nnz" followed by one
+ * "row column value" line per nonzero.
+ *
+ * % more tinySparse.txt
+ * 3 4 3
+ * 0 1 2.25
+ * 2 0 -1.0
+ * 2 3 1.5
+ *
  ***************************************************************************/
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.InputMismatchException;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
 /**
  * Standard array IO. This class provides methods for reading
  * in 1D and 2D from standard input and printing out to standard output.
+ * <p>
+ * The print methods write through {@link DROut}, so to produce a
+ * compressed file call {@code DROut.setGzipOutput(filename)} (or
+ * {@code DROut.setGzipOutput(filename, threads)} for parallel
+ * compression) before printing, and {@code DROut.close()} afterwards.
  */
 public class DRArrayIO {
 
+    // the print methods hand text to DROut in blocks of about this many chars
+    private static final int PRINT_BLOCK_SIZE = 1 << 16;
+
+    // same line separator DROut.println() uses
+    private static final String NEWLINE = System.lineSeparator();
+
+    // same locale DROut.printf() uses
+    private static final Locale LOCALE = Locale.US;
+
+    // element types of binary array files
+    static final byte TYPE_INT     = 1;
+    static final byte TYPE_DOUBLE  = 2;
+    static final byte TYPE_BOOLEAN = 3;
+    static final byte TYPE_BITS    = 4;
+    static final byte TYPE_LONG    = 5;
+    static final byte TYPE_FLOAT   = 6;
+    static final byte TYPE_SHORT   = 7;
+    static final byte TYPE_BYTE    = 8;
+
+    // elements converted per step when an npy dtype differs from the array type
+    private static final int NPY_SCRATCH = 1 << 13;
+
+    // encodings of binary array files
+    static final byte ENCODING_RAW = 0;
+    static final byte ENCODING_CSR = 1;
+    static final byte ENCODING_DELTA  = 2;
+    static final byte ENCODING_PACKED = 3;
+
     // don't instantiate
     private DRArrayIO() { }
 
@@ -62,11 +136,16 @@ public class DRArrayIO {
      */
     public static void print(double[] a) {
         int n = a.length;
-        DROut.println(n);
+        StringBuilder sb = newPrintBuffer();
+        Formatter f = new Formatter(sb, LOCALE);
+        sb.append(n).append(NEWLINE);
 
-        for (int i = 0; i < n; i++)
-            DROut.printf("%9.5f ", a[i]);
-        DROut.println();
+        for (int i = 0; i < n; i++) {
+            f.format("%9.5f ", a[i]);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        sb.append(NEWLINE);
+        finish(sb);
     }
 
     /**
@@ -94,14 +173,17 @@ public class DRArrayIO {
     public static void print(double[][] a) {
         int m = a.length;
         int n = a[0].length;
-        DROut.println(m + " " + n);
+        StringBuilder sb = newPrintBuffer();
+        Formatter f = new Formatter(sb, LOCALE);
+        sb.append(m).append(' ').append(n).append(NEWLINE);
 
         for (int i = 0; i < m; i++) {
             for (int j = 0; j < n; j++)
-                DROut.printf("%9.5f ", a[i][j]);
-            DROut.println();
-
+                f.format("%9.5f ", a[i][j]);
+            sb.append(NEWLINE);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
         }
+        finish(sb);
     }
 
     /**
@@ -126,11 +208,15 @@ public class DRArrayIO {
      */
     public static void print(int[] a) {
         int n = a.length;
-        DROut.println(n);
+        StringBuilder sb = newPrintBuffer();
+        sb.append(n).append(NEWLINE);
 
-        for (int i = 0; i < n; i++)
-            DROut.printf("%9d ", a[i]);
-        DROut.println();
+        for (int i = 0; i < n; i++) {
+            appendInt(sb, a[i]);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        sb.append(NEWLINE);
+        finish(sb);
     }
 
     /**
@@ -158,13 +244,16 @@ public class DRArrayIO {
     public static void print(int[][] a) {
         int m = a.length;
         int n = a[0].length;
-        DROut.println(m + " " + n);
+        StringBuilder sb = newPrintBuffer();
+        sb.append(m).append(' ').append(n).append(NEWLINE);
 
         for (int i = 0; i < m; i++) {
             for (int j = 0; j < n; j++)
-                DROut.printf("%9d ", a[i][j]);
-            DROut.println();
+                appendInt(sb, a[i][j]);
+            sb.append(NEWLINE);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
         }
+        finish(sb);
     }
 
     /**
@@ -188,13 +277,16 @@ public class DRArrayIO {
      */
     public static void print(boolean[] a) {
         int n = a.length;
-        DROut.println(n);
+        StringBuilder sb = newPrintBuffer();
+        sb.append(n).append(NEWLINE);
 
         for (int i = 0; i < n; i++) {
-            if (a[i]) DROut.print("1 ");
-            else      DROut.print("0 ");
+            if (a[i]) sb.append("1 ");
+            else      sb.append("0 ");
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
         }
-        DROut.println();
+        sb.append(NEWLINE);
+        finish(sb);
     }
 
     /**
@@ -222,14 +314,3152 @@ public class DRArrayIO {
     public static void print(boolean[][] a) {
         int m = a.length;
         int n = a[0].length;
-        DROut.println(m + " " + n);
+        StringBuilder sb = newPrintBuffer();
+        sb.append(m).append(' ').append(n).append(NEWLINE);
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                if (a[i][j]) sb.append("1 ");
+                else         sb.append("0 ");
+            }
+            sb.append(NEWLINE);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        finish(sb);
+    }
+
+    /**
+     * Reads a 1D array of floats from standard input and returns it.
+     *
+     * @return the 1D array of floats
+     */
+    public static float[] readFloat1D() {
+        int n = DRIn.readInt();
+        float[] a = new float[n];
+
+        for (int i = 0; i < n; i++)
+            a[i] = DRIn.readFloat();
+
+        return a;
+    }
+
+    /**
+     * Prints an array of floats to standard output.
+     *
+     * @param a the 1D array of floats
+     */
+    public static void print(float[] a) {
+        int n = a.length;
+        StringBuilder sb = newPrintBuffer();
+        Formatter f = new Formatter(sb, LOCALE);
+        sb.append(n).append(NEWLINE);
+
+        for (int i = 0; i < n; i++) {
+            f.format("%9.5f ", a[i]);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        sb.append(NEWLINE);
+        finish(sb);
+    }
+
+    /**
+     * Reads a 2D array of floats from standard input and returns it.
+     *
+     * @return the 2D array of floats
+     */
+    public static float[][] readFloat2D() {
+        int m = DRIn.readInt();
+        int n = DRIn.readInt();
+        float[][] a = new float[m][n];
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                a[i][j] = DRIn.readFloat();
+        }
+        return a;
+    }
+
+    /**
+     * Prints a 2D array of floats to standard output.
+     *
+     * @param a the 2D array of floats
+     */
+    public static void print(float[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        StringBuilder sb = newPrintBuffer();
+        Formatter f = new Formatter(sb, LOCALE);
+        sb.append(m).append(' ').append(n).append(NEWLINE);
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                f.format("%9.5f ", a[i][j]);
+            sb.append(NEWLINE);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        finish(sb);
+    }
+
+    /**
+     * Reads a 1D array of longs from standard input and returns it.
+     *
+     * @return the 1D array of longs
+     */
+    public static long[] readLong1D() {
+        int n = DRIn.readInt();
+        long[] a = new long[n];
+
+        for (int i = 0; i < n; i++)
+            a[i] = DRIn.readLong();
+
+        return a;
+    }
+
+    /**
+     * Prints an array of longs to standard output.
+     *
+     * @param a the 1D array of longs
+     */
+    public static void print(long[] a) {
+        int n = a.length;
+        StringBuilder sb = newPrintBuffer();
+        sb.append(n).append(NEWLINE);
+
+        for (int i = 0; i < n; i++) {
+            appendLong(sb, a[i]);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        sb.append(NEWLINE);
+        finish(sb);
+    }
+
+    /**
+     * Reads a 2D array of longs from standard input and returns it.
+     *
+     * @return the 2D array of longs
+     */
+    public static long[][] readLong2D() {
+        int m = DRIn.readInt();
+        int n = DRIn.readInt();
+        long[][] a = new long[m][n];
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                a[i][j] = DRIn.readLong();
+        }
+        return a;
+    }
+
+    /**
+     * Prints a 2D array of longs to standard output.
+     *
+     * @param a the 2D array of longs
+     */
+    public static void print(long[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        StringBuilder sb = newPrintBuffer();
+        sb.append(m).append(' ').append(n).append(NEWLINE);
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                appendLong(sb, a[i][j]);
+            sb.append(NEWLINE);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        finish(sb);
+    }
+
+    /**
+     * Reads a 1D array of shorts from standard input and returns it.
+     *
+     * @return the 1D array of shorts
+     */
+    public static short[] readShort1D() {
+        int n = DRIn.readInt();
+        short[] a = new short[n];
+
+        for (int i = 0; i < n; i++)
+            a[i] = DRIn.readShort();
+
+        return a;
+    }
+
+    /**
+     * Prints an array of shorts to standard output.
+     *
+     * @param a the 1D array of shorts
+     */
+    public static void print(short[] a) {
+        int n = a.length;
+        StringBuilder sb = newPrintBuffer();
+        sb.append(n).append(NEWLINE);
+
+        for (int i = 0; i < n; i++) {
+            appendInt(sb, a[i]);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        sb.append(NEWLINE);
+        finish(sb);
+    }
+
+    /**
+     * Reads a 2D array of shorts from standard input and returns it.
+     *
+     * @return the 2D array of shorts
+     */
+    public static short[][] readShort2D() {
+        int m = DRIn.readInt();
+        int n = DRIn.readInt();
+        short[][] a = new short[m][n];
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                a[i][j] = DRIn.readShort();
+        }
+        return a;
+    }
+
+    /**
+     * Prints a 2D array of shorts to standard output.
+     *
+     * @param a the 2D array of shorts
+     */
+    public static void print(short[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        StringBuilder sb = newPrintBuffer();
+        sb.append(m).append(' ').append(n).append(NEWLINE);
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                appendInt(sb, a[i][j]);
+            sb.append(NEWLINE);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        finish(sb);
+    }
+
+    /**
+     * Reads a 1D array of bytes from standard input and returns it.
+     *
+     * @return the 1D array of bytes
+     */
+    public static byte[] readByte1D() {
+        int n = DRIn.readInt();
+        byte[] a = new byte[n];
+
+        for (int i = 0; i < n; i++)
+            a[i] = DRIn.readByte();
+
+        return a;
+    }
+
+    /**
+     * Prints an array of bytes to standard output.
+     *
+     * @param a the 1D array of bytes
+     */
+    public static void print(byte[] a) {
+        int n = a.length;
+        StringBuilder sb = newPrintBuffer();
+        sb.append(n).append(NEWLINE);
+
+        for (int i = 0; i < n; i++) {
+            appendInt(sb, a[i]);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        sb.append(NEWLINE);
+        finish(sb);
+    }
+
+    /**
+     * Reads a 2D array of bytes from standard input and returns it.
+     *
+     * @return the 2D array of bytes
+     */
+    public static byte[][] readByte2D() {
+        int m = DRIn.readInt();
+        int n = DRIn.readInt();
+        byte[][] a = new byte[m][n];
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                a[i][j] = DRIn.readByte();
+        }
+        return a;
+    }
+
+    /**
+     * Prints a 2D array of bytes to standard output.
+     *
+     * @param a the 2D array of bytes
+     */
+    public static void print(byte[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        StringBuilder sb = newPrintBuffer();
+        sb.append(m).append(' ').append(n).append(NEWLINE);
 
         for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                appendInt(sb, a[i][j]);
+            sb.append(NEWLINE);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        finish(sb);
+    }
+
+    /**
+     * Reads a 2D array of doubles from standard input into a contiguous
+     * row-major matrix and returns it.
+     *
+     * @return the matrix of doubles
+     */
+    public static DRDoubleMatrix readDoubleMatrix() {
+        int m = DRIn.readInt();
+        int n = DRIn.readInt();
+        DRDoubleMatrix a = new DRDoubleMatrix(m, n);
+        double[] data = a.data();
+
+        for (int k = 0; k < data.length; k++)
+            data[k] = DRIn.readDouble();
+        return a;
+    }
+
+    /**
+     * Prints a matrix of doubles to standard output, in the same format
+     * as {@link #print(double[][])}.
+     *
+     * @param a the matrix of doubles
+     */
+    public static void print(DRDoubleMatrix a) {
+        int m = a.rows();
+        int n = a.cols();
+        double[] data = a.data();
+        StringBuilder sb = newPrintBuffer();
+        Formatter f = new Formatter(sb, LOCALE);
+        sb.append(m).append(' ').append(n).append(NEWLINE);
+
+        for (int i = 0, k = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                f.format("%9.5f ", data[k++]);
+            sb.append(NEWLINE);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        finish(sb);
+    }
+
+    /**
+     * Reads a 2D array of integers from standard input into a contiguous
+     * row-major matrix and returns it.
+     *
+     * @return the matrix of integers
+     */
+    public static DRIntMatrix readIntMatrix() {
+        int m = DRIn.readInt();
+        int n = DRIn.readInt();
+        DRIntMatrix a = new DRIntMatrix(m, n);
+        int[] data = a.data();
+
+        for (int k = 0; k < data.length; k++)
+            data[k] = DRIn.readInt();
+        return a;
+    }
+
+    /**
+     * Prints a matrix of integers to standard output, in the same format
+     * as {@link #print(int[][])}.
+     *
+     * @param a the matrix of integers
+     */
+    public static void print(DRIntMatrix a) {
+        int m = a.rows();
+        int n = a.cols();
+        int[] data = a.data();
+        StringBuilder sb = newPrintBuffer();
+        sb.append(m).append(' ').append(n).append(NEWLINE);
+
+        for (int i = 0, k = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                appendInt(sb, data[k++]);
+            sb.append(NEWLINE);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        finish(sb);
+    }
+
+    /**
+     * Reads a 2D array of booleans from standard input into a contiguous
+     * row-major matrix and returns it.
+     *
+     * @return the matrix of booleans
+     */
+    public static DRBooleanMatrix readBooleanMatrix() {
+        int m = DRIn.readInt();
+        int n = DRIn.readInt();
+        DRBooleanMatrix a = new DRBooleanMatrix(m, n);
+        boolean[] data = a.data();
+
+        for (int k = 0; k < data.length; k++)
+            data[k] = DRIn.readBoolean();
+        return a;
+    }
+
+    /**
+     * Prints a matrix of booleans to standard output, in the same format
+     * as {@link #print(boolean[][])}.
+     *
+     * @param a the matrix of booleans
+     */
+    public static void print(DRBooleanMatrix a) {
+        int m = a.rows();
+        int n = a.cols();
+        boolean[] data = a.data();
+        StringBuilder sb = newPrintBuffer();
+        sb.append(m).append(' ').append(n).append(NEWLINE);
+
+        for (int i = 0, k = 0; i < m; i++) {
             for (int j = 0; j < n; j++) {
-                if (a[i][j]) DROut.print("1 ");
-                else         DROut.print("0 ");
+                if (data[k++]) sb.append("1 ");
+                else           sb.append("0 ");
             }
-            DROut.println();
+            sb.append(NEWLINE);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        finish(sb);
+    }
+
+    /**
+     * Reads a 2D array of booleans from standard input into a bit-packed
+     * matrix and returns it.
+     *
+     * @return the bit matrix
+     */
+    public static DRBitMatrix readBitMatrix() {
+        int m = DRIn.readInt();
+        int n = DRIn.readInt();
+        DRBitMatrix a = new DRBitMatrix(m, n);
+        long[] words = a.words();
+
+        for (int i = 0, k = 0; i < m; i++, k += a.wordsPerRow()) {
+            for (int j = 0; j < n; j++)
+                if (DRIn.readBoolean()) words[k + (j >>> 6)] |= 1L << j;
+        }
+        return a;
+    }
+
+    /**
+     * Prints a bit matrix to standard output, in the same format
+     * as {@link #print(boolean[][])}.
+     *
+     * @param a the bit matrix
+     */
+    public static void print(DRBitMatrix a) {
+        int m = a.rows();
+        int n = a.cols();
+        long[] words = a.words();
+        StringBuilder sb = newPrintBuffer();
+        sb.append(m).append(' ').append(n).append(NEWLINE);
+
+        for (int i = 0, k = 0; i < m; i++, k += a.wordsPerRow()) {
+            for (int j = 0; j < n; j++) {
+                if ((words[k + (j >>> 6)] & (1L << j)) != 0) sb.append("1 ");
+                else                                          sb.append("0 ");
+            }
+            sb.append(NEWLINE);
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        finish(sb);
+    }
+
+    /**
+     * Reads a sparse matrix of doubles from standard input, as "m n nnz"
+     * followed by {@code nnz} "row column value" triples in any order,
+     * and returns it in CSR format. Repeated positions are summed.
+     *
+     * @return the sparse matrix
+     */
+    public static DRSparseCSR readSparse() {
+        int m = DRIn.readInt();
+        int n = DRIn.readInt();
+        int nnz = DRIn.readInt();
+        DRSparseCOO a = new DRSparseCOO(m, n, nnz);
+
+        for (int k = 0; k < nnz; k++) {
+            int i = DRIn.readInt();
+            int j = DRIn.readInt();
+            a.add(i, j, DRIn.readDouble());
+        }
+        return a.toCSR();
+    }
+
+    /**
+     * Prints a sparse matrix to standard output, as "m n nnz" followed
+     * by one "row column value" line per stored element in row order.
+     *
+     * @param a the sparse matrix
+     */
+    public static void print(DRSparseCSR a) {
+        int m = a.rows();
+        int[] rowPtr = a.rowPtr();
+        int[] colIndex = a.colIndex();
+        double[] values = a.values();
+        StringBuilder sb = newPrintBuffer();
+        Formatter f = new Formatter(sb, LOCALE);
+        sb.append(m).append(' ').append(a.cols()).append(' ').append(a.nnz()).append(NEWLINE);
+
+        for (int i = 0; i < m; i++) {
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                sb.append(i).append(' ').append(colIndex[k]).append(' ');
+                f.format("%9.5f", values[k]);
+                sb.append(NEWLINE);
+            }
+            if (sb.length() >= PRINT_BLOCK_SIZE) drain(sb);
+        }
+        finish(sb);
+    }
+
+    /**
+     * Reads a 1D array of doubles from standard input straight into
+     * off-heap storage; the length may exceed {@code Integer.MAX_VALUE}.
+     *
+     * @return the off-heap array of doubles
+     */
+    public static DRBigDoubleArray readBigDouble1D() {
+        long n = DRIn.readLong();
+        DRBigDoubleArray a = DRBigDoubleArray.allocate(n);
+
+        for (long i = 0; i < n; i++)
+            a.set(i, DRIn.readDouble());
+        return a;
+    }
+
+    /**
+     * Reads a 2D array of doubles from standard input straight into
+     * off-heap storage, in row-major order.
+     *
+     * @return the off-heap matrix of doubles
+     */
+    public static DRBigDoubleArray readBigDouble2D() {
+        long m = DRIn.readLong();
+        long n = DRIn.readLong();
+        DRBigDoubleArray a = DRBigDoubleArray.allocate(m, n);
+
+        for (long k = 0; k < m * n; k++)
+            a.set(k, DRIn.readDouble());
+        return a;
+    }
+
+    /*
+     * Row streaming. These read the "m n" header and then hand the rows to
+     * a consumer one at a time, reusing a single row array, so a matrix
+     * far larger than the heap can be aggregated in constant memory.
+     * Each returns the number of rows.
+     */
+
+    /**
+     * Receives the rows of a 2D array of doubles one at a time.
+     */
+    public interface DoubleRowConsumer {
+
+        /**
+         * Processes one row. The array is reused for the next row, so
+         * copy it to keep it.
+         *
+         * @param i the row index
+         * @param row the elements of row {@code i}
+         */
+        void accept(int i, double[] row);
+    }
+
+    /**
+     * Receives the rows of a 2D array of integers one at a time.
+     */
+    public interface IntRowConsumer {
+
+        /**
+         * Processes one row. The array is reused for the next row, so
+         * copy it to keep it.
+         *
+         * @param i the row index
+         * @param row the elements of row {@code i}
+         */
+        void accept(int i, int[] row);
+    }
+
+    /**
+     * Receives the rows of a 2D array of booleans one at a time.
+     */
+    public interface BooleanRowConsumer {
+
+        /**
+         * Processes one row. The array is reused for the next row, so
+         * copy it to keep it.
+         *
+         * @param i the row index
+         * @param row the elements of row {@code i}
+         */
+        void accept(int i, boolean[] row);
+    }
+
+    /**
+     * Reads a 2D array of doubles from standard input one row at a time.
+     *
+     * @param consumer receives each row
+     * @return the number of rows
+     */
+    public static int streamDouble2D(DoubleRowConsumer consumer) {
+        int m = DRIn.readInt();
+        int n = DRIn.readInt();
+        double[] row = new double[n];
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                row[j] = DRIn.readDouble();
+            consumer.accept(i, row);
+        }
+        return m;
+    }
+
+    /**
+     * Reads a 2D array of integers from standard input one row at a time.
+     *
+     * @param consumer receives each row
+     * @return the number of rows
+     */
+    public static int streamInt2D(IntRowConsumer consumer) {
+        int m = DRIn.readInt();
+        int n = DRIn.readInt();
+        int[] row = new int[n];
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                row[j] = DRIn.readInt();
+            consumer.accept(i, row);
+        }
+        return m;
+    }
+
+    /**
+     * Reads a 2D array of booleans from standard input one row at a time.
+     *
+     * @param consumer receives each row
+     * @return the number of rows
+     */
+    public static int streamBoolean2D(BooleanRowConsumer consumer) {
+        int m = DRIn.readInt();
+        int n = DRIn.readInt();
+        boolean[] row = new boolean[n];
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                row[j] = DRIn.readBoolean();
+            consumer.accept(i, row);
+        }
+        return m;
+    }
+
+    /*
+     * Parallel parsing. Once the whole input is in memory (a mapped file,
+     * or standard input read to the end), the "m n" header is parsed and
+     * the rest is cut into chunks at whitespace. A first parallel pass
+     * counts the numbers in each chunk; a prefix sum of the counts gives
+     * the index of the first element of every chunk, so a second parallel
+     * pass can parse each chunk straight into its place in the matrix.
+     * Rows may be laid out over lines in any way, as with readDouble2D().
+     */
+
+    /**
+     * Reads a 2D array of doubles from the specified text file, parsing
+     * it on all available cores.
+     *
+     * @param filename the name of the file, in the format of {@link #readDouble2D()}
+     * @return the 2D array of doubles
+     * @throws IllegalArgumentException if the file cannot be read, is larger
+     *         than 2GB, or does not hold exactly m*n values after the header
+     * @throws InputMismatchException if a value cannot be parsed
+     */
+    public static double[][] readDouble2DParallel(String filename) {
+        return TextChunks.of(filename).parseDoubles();
+    }
+
+    /**
+     * Reads the rest of standard input as a 2D array of doubles, parsing
+     * it on all available cores.
+     *
+     * @return the 2D array of doubles
+     * @throws IllegalArgumentException unless the input holds exactly
+     *         m*n values after the header
+     * @throws InputMismatchException if a value cannot be parsed
+     */
+    public static double[][] readDouble2DParallel() {
+        return TextChunks.ofStandardInput().parseDoubles();
+    }
+
+    /**
+     * Reads a 2D array of integers from the specified text file, parsing
+     * it on all available cores.
+     *
+     * @param filename the name of the file, in the format of {@link #readInt2D()}
+     * @return the 2D array of integers
+     * @throws IllegalArgumentException if the file cannot be read, is larger
+     *         than 2GB, or does not hold exactly m*n values after the header
+     * @throws InputMismatchException if a value cannot be parsed
+     */
+    public static int[][] readInt2DParallel(String filename) {
+        return TextChunks.of(filename).parseInts();
+    }
+
+    /**
+     * Reads the rest of standard input as a 2D array of integers, parsing
+     * it on all available cores.
+     *
+     * @return the 2D array of integers
+     * @throws IllegalArgumentException unless the input holds exactly
+     *         m*n values after the header
+     * @throws InputMismatchException if a value cannot be parsed
+     */
+    public static int[][] readInt2DParallel() {
+        return TextChunks.ofStandardInput().parseInts();
+    }
+
+    /**
+     * A text matrix held in memory and cut into whitespace-aligned chunks.
+     */
+    private static final class TextChunks {
+        private static final int MIN_CHUNK = 1 << 16;
+
+        private final ByteBuffer text;
+        private final int m;
+        private final int n;
+        private final int[] bounds;   // chunk k is [bounds[k], bounds[k+1])
+        private final long[] first;   // index of the first element of each chunk
+
+        private TextChunks(ByteBuffer text) {
+            this.text = text;
+            int[] pos = { 0 };
+            this.m = headerToken(pos);
+            this.n = headerToken(pos);
+            if (m < 0 || n < 0)
+                throw new IllegalArgumentException("negative dimension: " + m + "-by-" + n);
+
+            int start = pos[0];
+            int end = text.limit();
+            int threads = Runtime.getRuntime().availableProcessors();
+            int chunks = (int) Math.max(1, Math.min(4L * threads, (end - start) / MIN_CHUNK));
+            bounds = new int[chunks + 1];
+            bounds[0] = start;
+            for (int k = 1; k < chunks; k++) {
+                int b = Math.max(bounds[k - 1], start + (int) ((long) (end - start) * k / chunks));
+                while (b < end && !isSpace(text.get(b))) b++;
+                bounds[k] = b;
+            }
+            bounds[chunks] = end;
+
+            long[] counts = new long[chunks];
+            IntStream.range(0, chunks).parallel().forEach(k -> counts[k] = count(k));
+            first = new long[chunks + 1];
+            for (int k = 0; k < chunks; k++)
+                first[k + 1] = first[k] + counts[k];
+            if (first[chunks] != (long) m * n)
+                throw new IllegalArgumentException
+                    ("expected " + ((long) m * n) + " values for a " + m + "-by-" + n
+                     + " matrix, found " + first[chunks]);
+        }
+
+        static TextChunks of(String filename) {
+            try (FileChannel ch = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+                if (ch.size() > Integer.MAX_VALUE)
+                    throw new IllegalArgumentException
+                        ("too large to parse in parallel (use readDouble2D): " + filename);
+                return new TextChunks(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+            }
+            catch (IOException e) {
+                throw new IllegalArgumentException("could not read " + filename, e);
+            }
+        }
+
+        static TextChunks ofStandardInput() {
+            byte[] bytes = DRIn.readAll().getBytes(StandardCharsets.UTF_8);
+            return new TextChunks(ByteBuffer.wrap(bytes));
+        }
+
+        double[][] parseDoubles() {
+            double[][] a = new double[m][n];
+            IntStream.range(0, bounds.length - 1).parallel().forEach(k -> {
+                long index = first[k];
+                int i = (int) (index / Math.max(n, 1));
+                int j = (int) (index % Math.max(n, 1));
+                char[] token = new char[32];
+                int p = bounds[k];
+                int end = bounds[k + 1];
+                while (p < end) {
+                    while (p < end && isSpace(text.get(p))) p++;
+                    if (p == end) break;
+                    int len = 0;
+                    for (; p < end && !isSpace(text.get(p)); p++) {
+                        if (len == token.length) token = Arrays.copyOf(token, 2 * len);
+                        token[len++] = (char) (text.get(p) & 0xFF);
+                    }
+                    String s = new String(token, 0, len);
+                    try {
+                        a[i][j] = Double.parseDouble(s);
+                    }
+                    catch (NumberFormatException e) {
+                        throw mismatch("a 'double'", s);
+                    }
+                    if (++j == n) { i++; j = 0; }
+                }
+            });
+            return a;
+        }
+
+        int[][] parseInts() {
+            int[][] a = new int[m][n];
+            IntStream.range(0, bounds.length - 1).parallel().forEach(k -> {
+                long index = first[k];
+                int i = (int) (index / Math.max(n, 1));
+                int j = (int) (index % Math.max(n, 1));
+                int p = bounds[k];
+                int end = bounds[k + 1];
+                while (p < end) {
+                    while (p < end && isSpace(text.get(p))) p++;
+                    if (p == end) break;
+                    int q = p;
+                    while (q < end && !isSpace(text.get(q))) q++;
+                    a[i][j] = parseInt(p, q);
+                    if (++j == n) { i++; j = 0; }
+                    p = q;
+                }
+            });
+            return a;
+        }
+
+        // number of tokens in chunk k
+        private long count(int k) {
+            long count = 0;
+            boolean inToken = false;
+            for (int p = bounds[k], end = bounds[k + 1]; p < end; p++) {
+                boolean space = isSpace(text.get(p));
+                if (!space && !inToken) count++;
+                inToken = !space;
+            }
+            return count;
+        }
+
+        // parse the token at pos[0] as a dimension and advance past it
+        private int headerToken(int[] pos) {
+            int p = pos[0];
+            int end = text.limit();
+            while (p < end && isSpace(text.get(p))) p++;
+            if (p == end)
+                throw new NoSuchElementException
+                    ("attempts to read an 'int' value, but no more tokens are available");
+            int q = p;
+            while (q < end && !isSpace(text.get(q))) q++;
+            pos[0] = q;
+            return parseInt(p, q);
+        }
+
+        // parse the bytes [p, q) as an int
+        private int parseInt(int p, int q) {
+            int k = p;
+            byte c = text.get(k);
+            boolean negative = c == '-';
+            if (c == '-' || c == '+') k++;
+            boolean ok = k < q && q - k <= 18;
+            long x = 0;
+            for (; ok && k < q; k++) {
+                int d = text.get(k) - '0';
+                ok = d >= 0 && d <= 9;
+                x = 10 * x + d;
+            }
+            if (negative) x = -x;
+            if (!ok || x < Integer.MIN_VALUE || x > Integer.MAX_VALUE) {
+                byte[] bytes = new byte[q - p];
+                for (int t = 0; t < bytes.length; t++)
+                    bytes[t] = text.get(p + t);
+                throw mismatch("an 'int'", new String(bytes, StandardCharsets.UTF_8));
+            }
+            return (int) x;
+        }
+
+        private static boolean isSpace(byte b) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+        }
+
+        private static InputMismatchException mismatch(String what, String token) {
+            return new InputMismatchException
+                ("attempts to read " + what + " value, but the next token is \"" + token + "\"");
+        }
+    }
+
+    /*
+     * Bulk printing. The print methods format whole rows into a buffer and
+     * hand it to DROut in large blocks, flushing once at the end, instead
+     * of one printf() and one flush per element. The output is the same,
+     * byte for byte, as printing each element with DROut.
+     */
+
+    // an empty buffer with room for one block plus a row's overshoot
+    private static StringBuilder newPrintBuffer() {
+        return new StringBuilder(PRINT_BLOCK_SIZE + (PRINT_BLOCK_SIZE >> 2));
+    }
+
+    // same as printf("%9d ", x), without parsing a format string
+    private static void appendInt(StringBuilder sb, int x) {
+        String s = Integer.toString(x);
+        for (int k = s.length(); k < 9; k++)
+            sb.append(' ');
+        sb.append(s).append(' ');
+    }
+
+    // same as printf("%9d ", x) for a long
+    private static void appendLong(StringBuilder sb, long x) {
+        String s = Long.toString(x);
+        for (int k = s.length(); k < 9; k++)
+            sb.append(' ');
+        sb.append(s).append(' ');
+    }
+
+    // write out the buffered text without flushing
+    private static void drain(StringBuilder sb) {
+        DROut.append(sb);
+        sb.setLength(0);
+    }
+
+    // write out the rest of the text and flush once
+    private static void finish(StringBuilder sb) {
+        drain(sb);
+        DROut.print();
+    }
+
+    /*
+     * Binary files. A binary array file is a 32-byte header followed by
+     * the elements in row-major order:
+     *
+     *   offset  size  field
+     *        0     4  magic "DRAB"
+     *        4     1  format version (1)
+     *        5     1  element type (TYPE_INT, TYPE_DOUBLE, ...)
+     *        6     1  byte order of everything after the magic
+     *                 (0 big-endian, 1 little-endian)
+     *        7     1  rank (1 or 2)
+     *        8     1  encoding (0 raw, 1 CSR sparse, 2 delta, 3 packed)
+     *        9     7  reserved, zero
+     *       16     8  number of rows (the length, for a 1D array)
+     *       24     8  number of columns (1, for a 1D array)
+     *
+     * Files are written in the native byte order and read in whatever
+     * order the header says. Readers memory-map the file and copy it into
+     * the destination array in bulk, one mapped chunk at a time.
+     */
+
+    /**
+     * Writes an array of doubles to the specified file in binary format.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of doubles
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, double[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_DOUBLE, 1, a.length, 1).write(out);
+            out.writeDoubles(a, 0, a.length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a 2D array of doubles to the specified file in binary format.
+     *
+     * @param filename the name of the file
+     * @param a the 2D array of doubles
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, double[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_DOUBLE, 2, m, n).write(out);
+            for (int i = 0; i < m; i++)
+                out.writeDoubles(a[i], 0, n);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of integers to the specified file in binary format.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of integers
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, int[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_INT, 1, a.length, 1).write(out);
+            out.writeInts(a, 0, a.length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a 2D array of integers to the specified file in binary format.
+     *
+     * @param filename the name of the file
+     * @param a the 2D array of integers
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, int[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_INT, 2, m, n).write(out);
+            for (int i = 0; i < m; i++)
+                out.writeInts(a[i], 0, n);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of booleans to the specified file in binary format,
+     * one byte per element.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of booleans
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, boolean[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_BOOLEAN, 1, a.length, 1).write(out);
+            out.writeBooleans(a, 0, a.length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a 2D array of booleans to the specified file in binary format,
+     * one byte per element.
+     *
+     * @param filename the name of the file
+     * @param a the 2D array of booleans
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, boolean[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_BOOLEAN, 2, m, n).write(out);
+            for (int i = 0; i < m; i++)
+                out.writeBooleans(a[i], 0, n);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of longs to the specified file in binary format.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of longs
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, long[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_LONG, 1, a.length, 1).write(out);
+            out.writeLongs(a, 0, a.length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Reads an array of longs from the specified binary file, which
+     * may be raw or compressed.
+     *
+     * @param filename the name of the file
+     * @return the 1D array of longs
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 1D array of longs
+     */
+    public static long[] readLong1DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.integerHeader(TYPE_LONG, 1);
+            if (h.encoding != ENCODING_RAW)
+                return DRIntCodec.readLongs(in.decoder(h), h.intRows());
+            long[] a = new long[h.intRows()];
+            in.readLongs(a, 0, a.length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /*
+     * Compressed integer files. These have the usual header with the
+     * delta or packed encoding (see DRIntCodec), followed by the encoded
+     * values. readInt1DBinary() and readLong1DBinary() decode them.
+     */
+
+    /**
+     * Writes an array of integers to the specified file, delta encoded.
+     * Suited to sorted or slowly varying values.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of integers
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinaryDelta(String filename, int[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            header(TYPE_INT, ENCODING_DELTA, a.length).write(out);
+            DRIntCodec.Encoder e = DRIntCodec.deltaEncoder(out.outputStream());
+            for (int i = 0; i < a.length; i++)
+                e.add(a[i]);
+            e.flush();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of longs to the specified file, delta encoded.
+     * Suited to sorted or slowly varying values.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of longs
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinaryDelta(String filename, long[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            header(TYPE_LONG, ENCODING_DELTA, a.length).write(out);
+            DRIntCodec.Encoder e = DRIntCodec.deltaEncoder(out.outputStream());
+            for (int i = 0; i < a.length; i++)
+                e.add(a[i]);
+            e.flush();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of integers to the specified file with
+     * frame-of-reference bit packing. Suited to values in a narrow range.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of integers
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinaryPacked(String filename, int[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            header(TYPE_INT, ENCODING_PACKED, a.length).write(out);
+            DRIntCodec.Encoder e = DRIntCodec.packedEncoder(out.outputStream());
+            for (int i = 0; i < a.length; i++)
+                e.add(a[i]);
+            e.flush();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of longs to the specified file with
+     * frame-of-reference bit packing. Suited to values in a narrow range.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of longs
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinaryPacked(String filename, long[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            header(TYPE_LONG, ENCODING_PACKED, a.length).write(out);
+            DRIntCodec.Encoder e = DRIntCodec.packedEncoder(out.outputStream());
+            for (int i = 0; i < a.length; i++)
+                e.add(a[i]);
+            e.flush();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    // header of a compressed 1D file
+    private static Header header(byte type, byte encoding, int length) {
+        return new Header(type, 1, encoding, length, 1, ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Reads an array of doubles from the specified binary file.
+     *
+     * @param filename the name of the file
+     * @return the 1D array of doubles
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 1D array of doubles
+     */
+    public static double[] readDouble1DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_DOUBLE, 1);
+            double[] a = new double[h.intRows()];
+            in.readDoubles(a, 0, a.length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of doubles from the specified binary file.
+     *
+     * @param filename the name of the file
+     * @return the 2D array of doubles
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of doubles
+     */
+    public static double[][] readDouble2DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_DOUBLE, 2);
+            int m = h.intRows();
+            int n = h.intCols();
+            double[][] a = new double[m][n];
+            for (int i = 0; i < m; i++)
+                in.readDoubles(a[i], 0, n);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads an array of integers from the specified binary file, which
+     * may be raw or compressed.
+     *
+     * @param filename the name of the file
+     * @return the 1D array of integers
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 1D array of integers
+     */
+    public static int[] readInt1DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.integerHeader(TYPE_INT, 1);
+            if (h.encoding != ENCODING_RAW)
+                return DRIntCodec.readInts(in.decoder(h), h.intRows());
+            int[] a = new int[h.intRows()];
+            in.readInts(a, 0, a.length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of integers from the specified binary file.
+     *
+     * @param filename the name of the file
+     * @return the 2D array of integers
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of integers
+     */
+    public static int[][] readInt2DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_INT, 2);
+            int m = h.intRows();
+            int n = h.intCols();
+            int[][] a = new int[m][n];
+            for (int i = 0; i < m; i++)
+                in.readInts(a[i], 0, n);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads an array of booleans from the specified binary file.
+     *
+     * @param filename the name of the file
+     * @return the 1D array of booleans
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 1D array of booleans
+     */
+    public static boolean[] readBoolean1DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_BOOLEAN, 1);
+            boolean[] a = new boolean[h.intRows()];
+            in.readBooleans(a, 0, a.length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of booleans from the specified binary file.
+     *
+     * @param filename the name of the file
+     * @return the 2D array of booleans
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of booleans
+     */
+    public static boolean[][] readBoolean2DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_BOOLEAN, 2);
+            int m = h.intRows();
+            int n = h.intCols();
+            boolean[][] a = new boolean[m][n];
+            for (int i = 0; i < m; i++)
+                in.readBooleans(a[i], 0, n);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of floats to the specified file in binary format.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of floats
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, float[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_FLOAT, 1, a.length, 1).write(out);
+            out.writeFloats(a, 0, a.length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a 2D array of floats to the specified file in binary format.
+     *
+     * @param filename the name of the file
+     * @param a the 2D array of floats
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, float[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_FLOAT, 2, m, n).write(out);
+            for (int i = 0; i < m; i++)
+                out.writeFloats(a[i], 0, n);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a 2D array of longs to the specified file in binary format.
+     *
+     * @param filename the name of the file
+     * @param a the 2D array of longs
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, long[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_LONG, 2, m, n).write(out);
+            for (int i = 0; i < m; i++)
+                out.writeLongs(a[i], 0, n);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of shorts to the specified file in binary format.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of shorts
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, short[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_SHORT, 1, a.length, 1).write(out);
+            out.writeShorts(a, 0, a.length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a 2D array of shorts to the specified file in binary format.
+     *
+     * @param filename the name of the file
+     * @param a the 2D array of shorts
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, short[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_SHORT, 2, m, n).write(out);
+            for (int i = 0; i < m; i++)
+                out.writeShorts(a[i], 0, n);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of bytes to the specified file in binary format.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of bytes
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, byte[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_BYTE, 1, a.length, 1).write(out);
+            out.writeBytes(a, 0, a.length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a 2D array of bytes to the specified file in binary format.
+     *
+     * @param filename the name of the file
+     * @param a the 2D array of bytes
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, byte[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_BYTE, 2, m, n).write(out);
+            for (int i = 0; i < m; i++)
+                out.writeBytes(a[i], 0, n);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Reads an array of floats from the specified binary file.
+     *
+     * @param filename the name of the file
+     * @return the 1D array of floats
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 1D array of floats
+     */
+    public static float[] readFloat1DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_FLOAT, 1);
+            float[] a = new float[h.intRows()];
+            in.readFloats(a, 0, a.length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of floats from the specified binary file.
+     *
+     * @param filename the name of the file
+     * @return the 2D array of floats
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of floats
+     */
+    public static float[][] readFloat2DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_FLOAT, 2);
+            int m = h.intRows();
+            int n = h.intCols();
+            float[][] a = new float[m][n];
+            for (int i = 0; i < m; i++)
+                in.readFloats(a[i], 0, n);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of longs from the specified binary file.
+     *
+     * @param filename the name of the file
+     * @return the 2D array of longs
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of longs
+     */
+    public static long[][] readLong2DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_LONG, 2);
+            int m = h.intRows();
+            int n = h.intCols();
+            long[][] a = new long[m][n];
+            for (int i = 0; i < m; i++)
+                in.readLongs(a[i], 0, n);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads an array of shorts from the specified binary file.
+     *
+     * @param filename the name of the file
+     * @return the 1D array of shorts
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 1D array of shorts
+     */
+    public static short[] readShort1DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_SHORT, 1);
+            short[] a = new short[h.intRows()];
+            in.readShorts(a, 0, a.length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of shorts from the specified binary file.
+     *
+     * @param filename the name of the file
+     * @return the 2D array of shorts
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of shorts
+     */
+    public static short[][] readShort2DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_SHORT, 2);
+            int m = h.intRows();
+            int n = h.intCols();
+            short[][] a = new short[m][n];
+            for (int i = 0; i < m; i++)
+                in.readShorts(a[i], 0, n);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads an array of bytes from the specified binary file.
+     *
+     * @param filename the name of the file
+     * @return the 1D array of bytes
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 1D array of bytes
+     */
+    public static byte[] readByte1DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_BYTE, 1);
+            byte[] a = new byte[h.intRows()];
+            in.readBytes(a, 0, a.length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of bytes from the specified binary file.
+     *
+     * @param filename the name of the file
+     * @return the 2D array of bytes
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of bytes
+     */
+    public static byte[][] readByte2DBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_BYTE, 2);
+            int m = h.intRows();
+            int n = h.intCols();
+            byte[][] a = new byte[m][n];
+            for (int i = 0; i < m; i++)
+                in.readBytes(a[i], 0, n);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of doubles from the specified binary file one row
+     * at a time, mapping the file in chunks.
+     *
+     * @param filename the name of the file
+     * @param consumer receives each row
+     * @return the number of rows
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of doubles
+     */
+    public static int streamDouble2DBinary(String filename, DoubleRowConsumer consumer) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_DOUBLE, 2);
+            int m = h.intRows();
+            double[] row = new double[h.intCols()];
+            for (int i = 0; i < m; i++) {
+                in.readDoubles(row, 0, row.length);
+                consumer.accept(i, row);
+            }
+            return m;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of integers from the specified binary file one row
+     * at a time, mapping the file in chunks.
+     *
+     * @param filename the name of the file
+     * @param consumer receives each row
+     * @return the number of rows
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of integers
+     */
+    public static int streamInt2DBinary(String filename, IntRowConsumer consumer) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_INT, 2);
+            int m = h.intRows();
+            int[] row = new int[h.intCols()];
+            for (int i = 0; i < m; i++) {
+                in.readInts(row, 0, row.length);
+                consumer.accept(i, row);
+            }
+            return m;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of booleans from the specified binary file one row
+     * at a time, mapping the file in chunks.
+     *
+     * @param filename the name of the file
+     * @param consumer receives each row
+     * @return the number of rows
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of booleans
+     */
+    public static int streamBoolean2DBinary(String filename, BooleanRowConsumer consumer) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_BOOLEAN, 2);
+            int m = h.intRows();
+            boolean[] row = new boolean[h.intCols()];
+            for (int i = 0; i < m; i++) {
+                in.readBooleans(row, 0, row.length);
+                consumer.accept(i, row);
+            }
+            return m;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a matrix of doubles to the specified file in binary format,
+     * as a 2D array of doubles.
+     *
+     * @param filename the name of the file
+     * @param a the matrix of doubles
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, DRDoubleMatrix a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_DOUBLE, 2, a.rows(), a.cols()).write(out);
+            out.writeDoubles(a.data(), 0, a.data().length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of doubles from the specified binary file into a
+     * contiguous row-major matrix, with a single bulk copy.
+     *
+     * @param filename the name of the file
+     * @return the matrix of doubles
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of doubles
+     */
+    public static DRDoubleMatrix readDoubleMatrixBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_DOUBLE, 2);
+            DRDoubleMatrix a = new DRDoubleMatrix(h.intRows(), h.intCols());
+            in.readDoubles(a.data(), 0, a.data().length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a matrix of integers to the specified file in binary format,
+     * as a 2D array of integers.
+     *
+     * @param filename the name of the file
+     * @param a the matrix of integers
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, DRIntMatrix a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_INT, 2, a.rows(), a.cols()).write(out);
+            out.writeInts(a.data(), 0, a.data().length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of integers from the specified binary file into a
+     * contiguous row-major matrix, with a single bulk copy.
+     *
+     * @param filename the name of the file
+     * @return the matrix of integers
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of integers
+     */
+    public static DRIntMatrix readIntMatrixBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_INT, 2);
+            DRIntMatrix a = new DRIntMatrix(h.intRows(), h.intCols());
+            in.readInts(a.data(), 0, a.data().length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a matrix of booleans to the specified file in binary format,
+     * as a 2D array of booleans.
+     *
+     * @param filename the name of the file
+     * @param a the matrix of booleans
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, DRBooleanMatrix a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_BOOLEAN, 2, a.rows(), a.cols()).write(out);
+            out.writeBooleans(a.data(), 0, a.data().length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of booleans from the specified binary file into a
+     * contiguous row-major matrix.
+     *
+     * @param filename the name of the file
+     * @return the matrix of booleans
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of booleans
+     */
+    public static DRBooleanMatrix readBooleanMatrixBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_BOOLEAN, 2);
+            DRBooleanMatrix a = new DRBooleanMatrix(h.intRows(), h.intCols());
+            in.readBooleans(a.data(), 0, a.data().length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a bit matrix to the specified file in binary format. Each row
+     * is stored as {@code ceil(n/64)} 64-bit words, low bit first.
+     *
+     * @param filename the name of the file
+     * @param a the bit matrix
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, DRBitMatrix a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_BITS, 2, a.rows(), a.cols()).write(out);
+            out.writeLongs(a.words(), 0, a.words().length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a bit matrix from the specified binary file, with a single
+     * bulk copy of its words.
+     *
+     * @param filename the name of the file
+     * @return the bit matrix
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a bit matrix
+     */
+    public static DRBitMatrix readBitMatrixBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_BITS, 2);
+            DRBitMatrix a = new DRBitMatrix(h.intRows(), h.intCols());
+            long[] words = a.words();
+            in.readLongs(words, 0, words.length);
+
+            // the bits past the last column of each row must be clear
+            int w = a.wordsPerRow();
+            long padding = (a.cols() & 63) == 0 ? 0L : -1L << a.cols();
+            for (int k = w - 1; padding != 0 && k < words.length; k += w)
+                if ((words[k] & padding) != 0)
+                    throw new IllegalArgumentException("corrupt bit matrix file: " + filename);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a sparse matrix to the specified file in binary format: a
+     * header for an m-by-n array of doubles with CSR encoding, then the
+     * number of nonzeros as a long, the m+1 row pointers and the column
+     * indices as ints, and the values as doubles.
+     *
+     * @param filename the name of the file
+     * @param a the sparse matrix
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, DRSparseCSR a) {
+        int nnz = a.nnz();
+        Header h = new Header(TYPE_DOUBLE, 2, ENCODING_CSR, a.rows(), a.cols(),
+                              ByteOrder.nativeOrder());
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            h.write(out);
+            out.writeLong(nnz);
+            out.writeInts(a.rowPtr(), 0, a.rows() + 1);
+            out.writeInts(a.colIndex(), 0, nnz);
+            out.writeDoubles(a.values(), 0, nnz);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a sparse matrix from the specified binary file, with bulk
+     * copies of its arrays.
+     *
+     * @param filename the name of the file
+     * @return the sparse matrix
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a sparse matrix
+     */
+    public static DRSparseCSR readSparseBinary(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_DOUBLE, 2, ENCODING_CSR);
+            int m = h.intRows();
+            long nnz = in.readLong();
+            if (nnz < 0 || nnz > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("corrupt sparse matrix file: " + filename);
+            int[] rowPtr = new int[m + 1];
+            int[] colIndex = new int[(int) nnz];
+            double[] values = new double[(int) nnz];
+            in.readInts(rowPtr, 0, m + 1);
+            in.readInts(colIndex, 0, colIndex.length);
+            in.readDoubles(values, 0, values.length);
+            int n = h.intCols();
+            boolean valid = rowPtr[0] == 0 && rowPtr[m] == nnz;
+            for (int i = 0; valid && i < m; i++)
+                valid = rowPtr[i] <= rowPtr[i + 1];
+            for (int k = 0; valid && k < colIndex.length; k++)
+                valid = colIndex[k] >= 0 && colIndex[k] < n;
+            if (!valid)
+                throw new IllegalArgumentException("corrupt sparse matrix file: " + filename);
+            return new DRSparseCSR(m, n, rowPtr, colIndex, values);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an off-heap array of doubles to the specified file in binary
+     * format, as a 2D array (or a 1D array, if it has one column).
+     *
+     * @param filename the name of the file
+     * @param a the off-heap array
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeBinary(String filename, DRBigDoubleArray a) {
+        int rank = a.cols() == 1 ? 1 : 2;
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            new Header(TYPE_DOUBLE, rank, a.rows(), a.cols()).write(out);
+            for (int k = 0; k < a.segments(); k++)
+                out.writeDoubles(a.segment(k));
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Maps a binary file of doubles as an off-heap array, without reading
+     * it into memory; the operating system pages it in as it is used.
+     *
+     * @param filename the name of the file
+     * @return a read-only off-heap array over the file
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold doubles
+     */
+    public static DRBigDoubleArray mapBigDouble(String filename) {
+        return DRBigDoubleArray.map(filename, false);
+    }
+
+    /**
+     * Memory-maps the elements of a binary file of doubles (1D or 2D) and
+     * returns them as a read-only buffer in row-major order, without
+     * copying; element (i, j) of an m-by-n array is at index i*n + j.
+     *
+     * @param filename the name of the file
+     * @return a read-only view of the elements
+     * @throws IllegalArgumentException if the file cannot be read, does not
+     *         hold doubles, or has more than 2GB of data
+     */
+    public static DoubleBuffer mapDoubles(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_DOUBLE, 0);
+            return in.map(h.count() * 8).asDoubleBuffer();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Memory-maps the elements of a binary file of integers (1D or 2D) and
+     * returns them as a read-only buffer in row-major order, without
+     * copying; element (i, j) of an m-by-n array is at index i*n + j.
+     *
+     * @param filename the name of the file
+     * @return a read-only view of the elements
+     * @throws IllegalArgumentException if the file cannot be read, does not
+     *         hold integers, or has more than 2GB of data
+     */
+    public static IntBuffer mapInts(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            Header h = in.header(TYPE_INT, 0);
+            return in.map(h.count() * 4).asIntBuffer();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /*
+     * NumPy files. A .npy file is a short magic string and version, a
+     * Python dict literal giving the dtype, memory order and shape, and
+     * then the raw elements. The readers memory-map the data region and
+     * copy it in bulk when the dtype matches the Java type, and convert
+     * through a small scratch buffer otherwise; arrays in Fortran order
+     * are transposed on the way in. Supported dtypes are int32, int64,
+     * float32, float64 and bool, in either byte order. The writers use
+     * native byte order and C order.
+     */
+
+    /**
+     * Reads a 1D array of doubles from the specified .npy file; any
+     * supported dtype is converted to double.
+     *
+     * @param filename the name of the file
+     * @return the 1D array of doubles
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a supported 1D array
+     */
+    public static double[] readNpyDouble1D(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            NpyHeader h = NpyHeader.read(in, filename, 1);
+            double[] a = new double[h.intDim(0)];
+            readNpyDoubles(in, h, a, 0, a.length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of doubles from the specified .npy file; any
+     * supported dtype is converted to double.
+     *
+     * @param filename the name of the file
+     * @return the 2D array of doubles
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a supported 2D array
+     */
+    public static double[][] readNpyDouble2D(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            NpyHeader h = NpyHeader.read(in, filename, 2);
+            int m = h.intDim(0);
+            int n = h.intDim(1);
+            double[][] a = new double[m][n];
+            if (!h.fortranOrder) {
+                for (int i = 0; i < m; i++)
+                    readNpyDoubles(in, h, a[i], 0, n);
+            }
+            else {
+                double[] col = new double[m];
+                for (int j = 0; j < n; j++) {
+                    readNpyDoubles(in, h, col, 0, m);
+                    for (int i = 0; i < m; i++)
+                        a[i][j] = col[i];
+                }
+            }
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of doubles from the specified .npy file into a
+     * contiguous row-major matrix; a C-order float64 file is a single
+     * bulk copy.
+     *
+     * @param filename the name of the file
+     * @return the matrix of doubles
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a supported 2D array
+     */
+    public static DRDoubleMatrix readNpyDoubleMatrix(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            NpyHeader h = NpyHeader.read(in, filename, 2);
+            int m = h.intDim(0);
+            int n = h.intDim(1);
+            DRDoubleMatrix a = new DRDoubleMatrix(m, n);
+            double[] data = a.data();
+            if (!h.fortranOrder) {
+                readNpyDoubles(in, h, data, 0, data.length);
+            }
+            else {
+                double[] col = new double[m];
+                for (int j = 0; j < n; j++) {
+                    readNpyDoubles(in, h, col, 0, m);
+                    for (int i = 0, k = j; i < m; i++, k += n)
+                        data[k] = col[i];
+                }
+            }
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 1D array of integers from the specified .npy file, which
+     * must hold int32, int64 (with every value in range) or bool.
+     *
+     * @param filename the name of the file
+     * @return the 1D array of integers
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a suitable 1D array
+     */
+    public static int[] readNpyInt1D(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            NpyHeader h = NpyHeader.read(in, filename, 1);
+            int[] a = new int[h.intDim(0)];
+            readNpyInts(in, h, a, 0, a.length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of integers from the specified .npy file, which
+     * must hold int32, int64 (with every value in range) or bool.
+     *
+     * @param filename the name of the file
+     * @return the 2D array of integers
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a suitable 2D array
+     */
+    public static int[][] readNpyInt2D(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            NpyHeader h = NpyHeader.read(in, filename, 2);
+            int m = h.intDim(0);
+            int n = h.intDim(1);
+            int[][] a = new int[m][n];
+            if (!h.fortranOrder) {
+                for (int i = 0; i < m; i++)
+                    readNpyInts(in, h, a[i], 0, n);
+            }
+            else {
+                int[] col = new int[m];
+                for (int j = 0; j < n; j++) {
+                    readNpyInts(in, h, col, 0, m);
+                    for (int i = 0; i < m; i++)
+                        a[i][j] = col[i];
+                }
+            }
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 1D array of longs from the specified .npy file, which
+     * must hold int64, int32 or bool.
+     *
+     * @param filename the name of the file
+     * @return the 1D array of longs
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a suitable 1D array
+     */
+    public static long[] readNpyLong1D(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            NpyHeader h = NpyHeader.read(in, filename, 1);
+            long[] a = new long[h.intDim(0)];
+            readNpyLongs(in, h, a, 0, a.length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 1D array of booleans from the specified .npy file, which
+     * must hold bool.
+     *
+     * @param filename the name of the file
+     * @return the 1D array of booleans
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 1D array of bools
+     */
+    public static boolean[] readNpyBoolean1D(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            NpyHeader h = NpyHeader.read(in, filename, 1);
+            h.require('b', filename);
+            boolean[] a = new boolean[h.intDim(0)];
+            in.readBooleans(a, 0, a.length);
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a 2D array of booleans from the specified .npy file, which
+     * must hold bool.
+     *
+     * @param filename the name of the file
+     * @return the 2D array of booleans
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold a 2D array of bools
+     */
+    public static boolean[][] readNpyBoolean2D(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            NpyHeader h = NpyHeader.read(in, filename, 2);
+            h.require('b', filename);
+            int m = h.intDim(0);
+            int n = h.intDim(1);
+            boolean[][] a = new boolean[m][n];
+            if (!h.fortranOrder) {
+                for (int i = 0; i < m; i++)
+                    in.readBooleans(a[i], 0, n);
+            }
+            else {
+                boolean[] col = new boolean[m];
+                for (int j = 0; j < n; j++) {
+                    in.readBooleans(col, 0, m);
+                    for (int i = 0; i < m; i++)
+                        a[i][j] = col[i];
+                }
+            }
+            return a;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Memory-maps the data of a float64 .npy file and returns it as a
+     * read-only buffer, without copying. The elements are in the file's
+     * order: row-major for C order, column-major for Fortran order.
+     *
+     * @param filename the name of the file
+     * @return a read-only view of the elements
+     * @throws IllegalArgumentException if the file cannot be read, does not
+     *         hold float64, or has more than 2GB of data
+     */
+    public static DoubleBuffer mapNpyDoubles(String filename) {
+        try (BinaryReader in = BinaryReader.open(filename)) {
+            NpyHeader h = NpyHeader.read(in, filename, 0);
+            h.require('f', filename);
+            if (h.size != 8)
+                throw new IllegalArgumentException("npy file holds float32, not float64: " + filename);
+            return in.map(h.count() * 8).asDoubleBuffer();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of doubles to the specified .npy file as float64.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of doubles
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeNpy(String filename, double[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            NpyHeader.write(out, "f8", a.length);
+            out.writeDoubles(a, 0, a.length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a 2D array of doubles to the specified .npy file as float64.
+     *
+     * @param filename the name of the file
+     * @param a the 2D array of doubles
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeNpy(String filename, double[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            NpyHeader.write(out, "f8", m, n);
+            for (int i = 0; i < m; i++)
+                out.writeDoubles(a[i], 0, n);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a matrix of doubles to the specified .npy file as float64.
+     *
+     * @param filename the name of the file
+     * @param a the matrix of doubles
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeNpy(String filename, DRDoubleMatrix a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            NpyHeader.write(out, "f8", a.rows(), a.cols());
+            out.writeDoubles(a.data(), 0, a.data().length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of floats to the specified .npy file as float32.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of floats
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeNpy(String filename, float[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            NpyHeader.write(out, "f4", a.length);
+            out.writeFloats(a, 0, a.length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a 2D array of floats to the specified .npy file as float32.
+     *
+     * @param filename the name of the file
+     * @param a the 2D array of floats
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeNpy(String filename, float[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            NpyHeader.write(out, "f4", m, n);
+            for (int i = 0; i < m; i++)
+                out.writeFloats(a[i], 0, n);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of integers to the specified .npy file as int32.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of integers
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeNpy(String filename, int[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            NpyHeader.write(out, "i4", a.length);
+            out.writeInts(a, 0, a.length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a 2D array of integers to the specified .npy file as int32.
+     *
+     * @param filename the name of the file
+     * @param a the 2D array of integers
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeNpy(String filename, int[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            NpyHeader.write(out, "i4", m, n);
+            for (int i = 0; i < m; i++)
+                out.writeInts(a[i], 0, n);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of longs to the specified .npy file as int64.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of longs
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeNpy(String filename, long[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            NpyHeader.write(out, "i8", a.length);
+            out.writeLongs(a, 0, a.length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes an array of booleans to the specified .npy file as bool.
+     *
+     * @param filename the name of the file
+     * @param a the 1D array of booleans
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeNpy(String filename, boolean[] a) {
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            NpyHeader.write(out, "b1", a.length);
+            out.writeBooleans(a, 0, a.length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a 2D array of booleans to the specified .npy file as bool.
+     *
+     * @param filename the name of the file
+     * @param a the 2D array of booleans
+     * @throws IllegalArgumentException if the file cannot be written
+     */
+    public static void writeNpy(String filename, boolean[][] a) {
+        int m = a.length;
+        int n = a[0].length;
+        try (BinaryWriter out = BinaryWriter.open(filename)) {
+            NpyHeader.write(out, "b1", m, n);
+            for (int i = 0; i < m; i++)
+                out.writeBooleans(a[i], 0, n);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    // read len elements of any supported dtype as doubles, converting
+    // through the header's scratch array
+    private static void readNpyDoubles(BinaryReader in, NpyHeader h,
+                                       double[] a, int off, int len) throws IOException {
+        int end = off + len;
+        if (h.kind == 'f' && h.size == 8) {
+            in.readDoubles(a, off, len);
+        }
+        else if (h.kind == 'f') {
+            float[] s = h.scratch(float[]::new);
+            for (int k; off < end; off += k) {
+                k = Math.min(end - off, s.length);
+                in.readFloats(s, 0, k);
+                for (int i = 0; i < k; i++) a[off + i] = s[i];
+            }
+        }
+        else if (h.kind == 'i' && h.size == 4) {
+            int[] s = h.scratch(int[]::new);
+            for (int k; off < end; off += k) {
+                k = Math.min(end - off, s.length);
+                in.readInts(s, 0, k);
+                for (int i = 0; i < k; i++) a[off + i] = s[i];
+            }
+        }
+        else if (h.kind == 'i') {
+            long[] s = h.scratch(long[]::new);
+            for (int k; off < end; off += k) {
+                k = Math.min(end - off, s.length);
+                in.readLongs(s, 0, k);
+                for (int i = 0; i < k; i++) a[off + i] = s[i];
+            }
+        }
+        else {
+            boolean[] s = h.scratch(boolean[]::new);
+            for (int k; off < end; off += k) {
+                k = Math.min(end - off, s.length);
+                in.readBooleans(s, 0, k);
+                for (int i = 0; i < k; i++) a[off + i] = s[i] ? 1.0 : 0.0;
+            }
+        }
+    }
+
+    // read len elements of an integer or bool dtype as ints
+    private static void readNpyInts(BinaryReader in, NpyHeader h,
+                                    int[] a, int off, int len) throws IOException {
+        if (h.kind == 'f')
+            throw new IllegalArgumentException("npy file holds floating-point values, not integers");
+        int end = off + len;
+        if (h.kind == 'i' && h.size == 4) {
+            in.readInts(a, off, len);
+        }
+        else if (h.kind == 'i') {
+            long[] s = h.scratch(long[]::new);
+            for (int k; off < end; off += k) {
+                k = Math.min(end - off, s.length);
+                in.readLongs(s, 0, k);
+                for (int i = 0; i < k; i++) {
+                    if (s[i] != (int) s[i])
+                        throw new IllegalArgumentException("value does not fit in an int: " + s[i]);
+                    a[off + i] = (int) s[i];
+                }
+            }
+        }
+        else {
+            boolean[] s = h.scratch(boolean[]::new);
+            for (int k; off < end; off += k) {
+                k = Math.min(end - off, s.length);
+                in.readBooleans(s, 0, k);
+                for (int i = 0; i < k; i++) a[off + i] = s[i] ? 1 : 0;
+            }
+        }
+    }
+
+    // read len elements of an integer or bool dtype as longs
+    private static void readNpyLongs(BinaryReader in, NpyHeader h,
+                                     long[] a, int off, int len) throws IOException {
+        if (h.kind == 'f')
+            throw new IllegalArgumentException("npy file holds floating-point values, not integers");
+        int end = off + len;
+        if (h.kind == 'i' && h.size == 8) {
+            in.readLongs(a, off, len);
+        }
+        else if (h.kind == 'i') {
+            int[] s = h.scratch(int[]::new);
+            for (int k; off < end; off += k) {
+                k = Math.min(end - off, s.length);
+                in.readInts(s, 0, k);
+                for (int i = 0; i < k; i++) a[off + i] = s[i];
+            }
+        }
+        else {
+            boolean[] s = h.scratch(boolean[]::new);
+            for (int k; off < end; off += k) {
+                k = Math.min(end - off, s.length);
+                in.readBooleans(s, 0, k);
+                for (int i = 0; i < k; i++) a[off + i] = s[i] ? 1 : 0;
+            }
+        }
+    }
+
+    /**
+     * The header of a NumPy .npy file.
+     */
+    static final class NpyHeader {
+        private static final byte[] MAGIC = { (byte) 0x93, 'N', 'U', 'M', 'P', 'Y' };
+        private static final Pattern DESCR = Pattern.compile("'descr'\\s*:\\s*'([^']*)'");
+        private static final Pattern FORTRAN = Pattern.compile("'fortran_order'\\s*:\\s*(True|False)");
+        private static final Pattern SHAPE = Pattern.compile("'shape'\\s*:\\s*\\(([^)]*)\\)");
+
+        final char kind;            // 'i', 'f' or 'b'
+        final int size;             // bytes per element
+        final ByteOrder order;
+        final boolean fortranOrder;
+        final long[] shape;
+
+        // conversion buffer for a dtype that differs from the array type,
+        // made on first use and reused by every read from the file
+        private Object scratch;
+
+        private NpyHeader(char kind, int size, ByteOrder order, boolean fortranOrder, long[] shape) {
+            this.kind = kind;
+            this.size = size;
+            this.order = order;
+            this.fortranOrder = fortranOrder;
+            this.shape = shape;
+        }
+
+        long count() {
+            long count = 1;
+            for (long d : shape)
+                count *= d;
+            return count;
+        }
+
+        // the conversion buffer, of at most NPY_SCRATCH elements; its
+        // element type depends only on the dtype, so it is always the same
+        @SuppressWarnings("unchecked")
+        <T> T scratch(java.util.function.IntFunction<T> allocate) {
+            if (scratch == null)
+                scratch = allocate.apply((int) Math.min(count(), NPY_SCRATCH));
+            return (T) scratch;
+        }
+
+        int intDim(int k) {
+            if (shape[k] > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("dimension too large for an array: " + shape[k]);
+            return (int) shape[k];
+        }
+
+        void require(char kind, String filename) {
+            if (this.kind != kind)
+                throw new IllegalArgumentException("npy file holds the wrong dtype: " + filename);
+        }
+
+        // parse the header, check the rank (0 for any) and the file
+        // length, and leave the reader at the start of the data
+        static NpyHeader read(BinaryReader in, String filename, int rank) throws IOException {
+            FileChannel ch = in.channel();
+            ByteBuffer pre = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            while (pre.hasRemaining())
+                if (ch.read(pre) < 0) break;
+            if (pre.position() < 10)
+                throw new IllegalArgumentException("not an npy file: " + filename);
+            for (int k = 0; k < MAGIC.length; k++)
+                if (pre.get(k) != MAGIC[k])
+                    throw new IllegalArgumentException("not an npy file: " + filename);
+            int major = pre.get(6);
+            long length;
+            int start;
+            if (major == 1) {
+                length = pre.getShort(8) & 0xFFFF;
+                start = 10;
+            }
+            else if (major == 2 || major == 3) {
+                length = pre.getInt(8) & 0xFFFFFFFFL;
+                start = 12;
+            }
+            else {
+                throw new IllegalArgumentException("unsupported npy version " + major + ": " + filename);
+            }
+            ByteBuffer text = ByteBuffer.allocate((int) length);
+            ch.position(start);
+            while (text.hasRemaining())
+                if (ch.read(text) < 0)
+                    throw new IllegalArgumentException("truncated npy header: " + filename);
+            String dict = new String(text.array(), StandardCharsets.UTF_8);
+
+            Matcher descr = DESCR.matcher(dict);
+            Matcher fortran = FORTRAN.matcher(dict);
+            Matcher shapeText = SHAPE.matcher(dict);
+            if (!descr.find() || !fortran.find() || !shapeText.find())
+                throw new IllegalArgumentException("malformed npy header: " + filename);
+            NpyHeader h = parse(descr.group(1), "True".equals(fortran.group(1)),
+                                shapeText.group(1), filename);
+
+            if (rank != 0 && h.shape.length != rank)
+                throw new IllegalArgumentException
+                    ("npy file holds a " + h.shape.length + "D array, not " + rank + "D: " + filename);
+            long data = start + length;
+            if (h.count() > (ch.size() - data) / h.size)
+                throw new IllegalArgumentException("truncated npy file: " + filename);
+            in.seek(data, h.order);
+            return h;
+        }
+
+        private static NpyHeader parse(String descr, boolean fortranOrder, String shapeText,
+                                       String filename) {
+            if (descr.length() != 3)
+                throw new IllegalArgumentException("unsupported npy dtype '" + descr + "': " + filename);
+            char byteOrder = descr.charAt(0);
+            char kind = descr.charAt(1);
+            int size = descr.charAt(2) - '0';
+            boolean supported = (kind == 'i' && (size == 4 || size == 8))
+                             || (kind == 'f' && (size == 4 || size == 8))
+                             || (kind == 'b' && size == 1);
+            if (!supported)
+                throw new IllegalArgumentException("unsupported npy dtype '" + descr + "': " + filename);
+            ByteOrder order;
+            if      (byteOrder == '<') order = ByteOrder.LITTLE_ENDIAN;
+            else if (byteOrder == '>') order = ByteOrder.BIG_ENDIAN;
+            else if (byteOrder == '=' || byteOrder == '|') order = ByteOrder.nativeOrder();
+            else throw new IllegalArgumentException("unsupported npy dtype '" + descr + "': " + filename);
+
+            String[] dims = shapeText.split(",");
+            int rank = 0;
+            for (String d : dims)
+                if (!d.trim().isEmpty()) rank++;
+            long[] shape = new long[rank];
+            for (int k = 0, r = 0; k < dims.length; k++) {
+                String d = dims[k].trim();
+                if (d.isEmpty()) continue;
+                try {
+                    shape[r++] = Long.parseLong(d.endsWith("L") ? d.substring(0, d.length() - 1) : d);
+                }
+                catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("malformed npy shape: " + filename);
+                }
+                if (shape[r - 1] < 0)
+                    throw new IllegalArgumentException("negative npy dimension " + shape[r - 1] + ": " + filename);
+            }
+            return new NpyHeader(kind, size, order, fortranOrder, shape);
+        }
+
+        // write a version 1.0 header for a C-order array in native byte order
+        static void write(BinaryWriter out, String dtype, long... shape) throws IOException {
+            char byteOrder = dtype.charAt(0) == 'b' ? '|'
+                           : ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? '<' : '>';
+            String shapeText = shape.length == 1 ? shape[0] + ","
+                                                 : shape[0] + ", " + shape[1];
+            StringBuilder dict = new StringBuilder();
+            dict.append("{'descr': '").append(byteOrder).append(dtype)
+                .append("', 'fortran_order': False, 'shape': (").append(shapeText).append("), }");
+            while ((MAGIC.length + 4 + dict.length() + 1) % 64 != 0)
+                dict.append(' ');
+            dict.append('\n');
+
+            ByteBuffer buf = ByteBuffer.allocate(MAGIC.length + 4 + dict.length())
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+            buf.put(MAGIC);
+            buf.put((byte) 1);
+            buf.put((byte) 0);
+            buf.putShort((short) dict.length());
+            buf.put(dict.toString().getBytes(StandardCharsets.US_ASCII));
+            buf.flip();
+            out.writeRaw(buf);
+        }
+    }
+
+    /**
+     * The header of a binary array file.
+     */
+    static final class Header {
+        static final int SIZE = 32;
+        private static final byte[] MAGIC = { 'D', 'R', 'A', 'B' };
+        private static final byte VERSION = 1;
+
+        final byte type;
+        final int rank;
+        final byte encoding;
+        final long rows;
+        final long cols;
+        final ByteOrder order;
+
+        Header(byte type, int rank, long rows, long cols) {
+            this(type, rank, ENCODING_RAW, rows, cols, ByteOrder.nativeOrder());
+        }
+
+        Header(byte type, int rank, byte encoding, long rows, long cols, ByteOrder order) {
+            this.type = type;
+            this.rank = rank;
+            this.encoding = encoding;
+            this.rows = rows;
+            this.cols = cols;
+            this.order = order;
+        }
+
+        // number of elements
+        long count() {
+            return rows * cols;
+        }
+
+        // number of bytes of raw data after the header
+        long dataBytes() {
+            if (type == TYPE_BITS) return rows * ((cols + 63) >>> 6) * 8;
+            return count() * elementSize(type);
+        }
+
+        int intRows() {
+            if (rows > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("too many rows for an array: " + rows);
+            return (int) rows;
+        }
+
+        int intCols() {
+            if (cols > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("too many columns for an array: " + cols);
+            return (int) cols;
+        }
+
+        void write(BinaryWriter out) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(SIZE).order(order);
+            buf.put(MAGIC);
+            buf.put(VERSION);
+            buf.put(type);
+            buf.put((byte) (order == ByteOrder.LITTLE_ENDIAN ? 1 : 0));
+            buf.put((byte) rank);
+            buf.put(encoding);
+            buf.position(16);
+            buf.putLong(rows);
+            buf.putLong(cols);
+            buf.flip();
+            out.writeRaw(buf);
+        }
+
+        static Header read(FileChannel ch, String filename) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(SIZE);
+            while (buf.hasRemaining())
+                if (ch.read(buf) < 0) break;
+            if (buf.hasRemaining())
+                throw new IllegalArgumentException("not a binary array file: " + filename);
+            buf.flip();
+            for (int k = 0; k < MAGIC.length; k++)
+                if (buf.get() != MAGIC[k])
+                    throw new IllegalArgumentException("not a binary array file: " + filename);
+            byte version = buf.get();
+            if (version != VERSION)
+                throw new IllegalArgumentException
+                    ("unsupported binary array version " + version + ": " + filename);
+            byte type = buf.get();
+            ByteOrder order = buf.get() == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+            int rank = buf.get();
+            byte encoding = buf.get();
+            buf.order(order).position(16);
+            long rows = buf.getLong();
+            long cols = buf.getLong();
+            if (rows < 0 || cols < 0 || (cols != 0 && rows > Long.MAX_VALUE / cols))
+                throw new IllegalArgumentException("corrupt binary array header: " + filename);
+            return new Header(type, rank, encoding, rows, cols, order);
+        }
+    }
+
+    /**
+     * Writes a binary array file through a direct buffer.
+     */
+    static final class BinaryWriter implements AutoCloseable {
+        private static final int BUFFER_SIZE = 1 << 20;
+        private final FileChannel ch;
+        private final ByteBuffer buf;
+
+        private BinaryWriter(FileChannel ch, ByteOrder order) {
+            this.ch = ch;
+            this.buf = ByteBuffer.allocateDirect(BUFFER_SIZE).order(order);
+        }
+
+        static BinaryWriter open(String filename) throws IOException {
+            FileChannel ch = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                                              StandardOpenOption.TRUNCATE_EXISTING,
+                                              StandardOpenOption.WRITE);
+            return new BinaryWriter(ch, ByteOrder.nativeOrder());
+        }
+
+        // a stream for compressed data, positioned after what was written
+        OutputStream outputStream() throws IOException {
+            flush();
+            return Channels.newOutputStream(ch);
+        }
+
+        void writeRaw(ByteBuffer src) throws IOException {
+            flush();
+            while (src.hasRemaining())
+                ch.write(src);
+        }
+
+        void writeLong(long x) throws IOException {
+            if (buf.remaining() < 8) flush();
+            buf.putLong(x);
+        }
+
+        void writeDoubles(double[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                if (buf.remaining() < 8) flush();
+                int k = Math.min(len, buf.remaining() / 8);
+                buf.asDoubleBuffer().put(a, off, k);
+                buf.position(buf.position() + 8 * k);
+                off += k;
+                len -= k;
+            }
+        }
+
+        void writeDoubles(DoubleBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                if (buf.remaining() < 8) flush();
+                DoubleBuffer dst = buf.asDoubleBuffer();
+                int k = Math.min(src.remaining(), dst.remaining());
+                DoubleBuffer part = src.duplicate();
+                part.limit(part.position() + k);
+                dst.put(part);
+                src.position(src.position() + k);
+                buf.position(buf.position() + 8 * k);
+            }
+        }
+
+        void writeLongs(long[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                if (buf.remaining() < 8) flush();
+                int k = Math.min(len, buf.remaining() / 8);
+                buf.asLongBuffer().put(a, off, k);
+                buf.position(buf.position() + 8 * k);
+                off += k;
+                len -= k;
+            }
+        }
+
+        void writeFloats(float[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                if (buf.remaining() < 4) flush();
+                int k = Math.min(len, buf.remaining() / 4);
+                buf.asFloatBuffer().put(a, off, k);
+                buf.position(buf.position() + 4 * k);
+                off += k;
+                len -= k;
+            }
+        }
+
+        void writeShorts(short[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                if (buf.remaining() < 2) flush();
+                int k = Math.min(len, buf.remaining() / 2);
+                buf.asShortBuffer().put(a, off, k);
+                buf.position(buf.position() + 2 * k);
+                off += k;
+                len -= k;
+            }
+        }
+
+        void writeInts(int[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                if (buf.remaining() < 4) flush();
+                int k = Math.min(len, buf.remaining() / 4);
+                buf.asIntBuffer().put(a, off, k);
+                buf.position(buf.position() + 4 * k);
+                off += k;
+                len -= k;
+            }
+        }
+
+        void writeBytes(byte[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buf.hasRemaining()) flush();
+                int k = Math.min(len, buf.remaining());
+                buf.put(a, off, k);
+                off += k;
+                len -= k;
+            }
+        }
+
+        void writeBooleans(boolean[] a, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                if (!buf.hasRemaining()) flush();
+                buf.put((byte) (a[i] ? 1 : 0));
+            }
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining())
+                ch.write(buf);
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            }
+            finally {
+                ch.close();
+            }
+        }
+    }
+
+    /**
+     * Reads a binary array file sequentially, mapping it one chunk at
+     * a time so that files larger than 2GB can be read.
+     */
+    static final class BinaryReader implements AutoCloseable {
+        private static final long MAP_CHUNK = 1L << 30;
+        private final FileChannel ch;
+        private final String filename;
+        private ByteOrder order = ByteOrder.nativeOrder();
+        private long base = Header.SIZE;   // file offset of buf
+        private ByteBuffer buf = ByteBuffer.allocate(0);
+
+        private BinaryReader(FileChannel ch, String filename) {
+            this.ch = ch;
+            this.filename = filename;
+        }
+
+        static BinaryReader open(String filename) throws IOException {
+            return new BinaryReader(FileChannel.open(Paths.get(filename),
+                                                     StandardOpenOption.READ), filename);
+        }
+
+        // read the header of a raw array file
+        Header header(byte type, int rank) throws IOException {
+            return header(type, rank, ENCODING_RAW);
+        }
+
+        // read the header of a file with the given encoding
+        Header header(byte type, int rank, byte encoding) throws IOException {
+            Header h = anyHeader(type, rank);
+            if (h.encoding != encoding)
+                throw new IllegalArgumentException
+                    ("binary array file uses encoding " + h.encoding + ", not "
+                     + encoding + ": " + filename);
+            return h;
+        }
+
+        // read the header of a raw, delta or packed file of integers
+        Header integerHeader(byte type, int rank) throws IOException {
+            Header h = anyHeader(type, rank);
+            if (h.encoding != ENCODING_RAW && h.encoding != ENCODING_DELTA
+                && h.encoding != ENCODING_PACKED)
+                throw new IllegalArgumentException
+                    ("binary array file uses encoding " + h.encoding + ": " + filename);
+            return h;
+        }
+
+        // read the header, check it against what the caller expects
+        // (rank 0 accepts any rank) and that a raw file is long enough
+        private Header anyHeader(byte type, int rank) throws IOException {
+            Header h = Header.read(ch, filename);
+            if (h.type != type)
+                throw new IllegalArgumentException
+                    ("binary array file holds " + typeName(h.type) + ", not "
+                     + typeName(type) + ": " + filename);
+            if (rank != 0 && h.rank != rank)
+                throw new IllegalArgumentException
+                    ("binary array file holds a " + h.rank + "D array, not "
+                     + rank + "D: " + filename);
+            if (h.encoding == ENCODING_RAW
+                && h.dataBytes() > ch.size() - Header.SIZE)
+                throw new IllegalArgumentException("truncated binary array file: " + filename);
+            order = h.order;
+            return h;
+        }
+
+        // a decoder for the compressed values after the header
+        DRIntCodec.Decoder decoder(Header h) throws IOException {
+            ch.position(position());
+            InputStream stream = Channels.newInputStream(ch);
+            if (h.encoding == ENCODING_DELTA) return DRIntCodec.deltaDecoder(stream);
+            else                              return DRIntCodec.packedDecoder(stream);
+        }
+
+        FileChannel channel() {
+            return ch;
+        }
+
+        // continue at the given file offset, in the given byte order
+        void seek(long pos, ByteOrder order) {
+            this.base = pos;
+            this.buf = ByteBuffer.allocate(0);
+            this.order = order;
+        }
+
+        // current file offset
+        long position() {
+            return base + buf.position();
+        }
+
+        // map len bytes at the current position as a read-only buffer
+        ByteBuffer map(long len) throws IOException {
+            if (len > Integer.MAX_VALUE)
+                throw new IllegalArgumentException
+                    ("too large to map as a single buffer: " + filename);
+            return ch.map(FileChannel.MapMode.READ_ONLY, position(), len).order(order);
+        }
+
+        // make sure at least size bytes are available in buf
+        private ByteBuffer next(int size) throws IOException {
+            if (buf.remaining() >= size) return buf;
+            long pos = position();
+            long len = Math.min(MAP_CHUNK, ch.size() - pos);
+            if (len < size)
+                throw new IllegalArgumentException("truncated binary array file: " + filename);
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, len).order(order);
+            base = pos;
+            return buf;
+        }
+
+        long readLong() throws IOException {
+            return next(8).getLong();
+        }
+
+        void readDoubles(double[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                ByteBuffer b = next(8);
+                int k = Math.min(len, b.remaining() / 8);
+                b.asDoubleBuffer().get(a, off, k);
+                b.position(b.position() + 8 * k);
+                off += k;
+                len -= k;
+            }
+        }
+
+        void readLongs(long[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                ByteBuffer b = next(8);
+                int k = Math.min(len, b.remaining() / 8);
+                b.asLongBuffer().get(a, off, k);
+                b.position(b.position() + 8 * k);
+                off += k;
+                len -= k;
+            }
+        }
+
+        void readFloats(float[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                ByteBuffer b = next(4);
+                int k = Math.min(len, b.remaining() / 4);
+                b.asFloatBuffer().get(a, off, k);
+                b.position(b.position() + 4 * k);
+                off += k;
+                len -= k;
+            }
+        }
+
+        void readInts(int[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                ByteBuffer b = next(4);
+                int k = Math.min(len, b.remaining() / 4);
+                b.asIntBuffer().get(a, off, k);
+                b.position(b.position() + 4 * k);
+                off += k;
+                len -= k;
+            }
+        }
+
+        void readShorts(short[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                ByteBuffer b = next(2);
+                int k = Math.min(len, b.remaining() / 2);
+                b.asShortBuffer().get(a, off, k);
+                b.position(b.position() + 2 * k);
+                off += k;
+                len -= k;
+            }
+        }
+
+        void readBytes(byte[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                ByteBuffer b = next(1);
+                int k = Math.min(len, b.remaining());
+                b.get(a, off, k);
+                off += k;
+                len -= k;
+            }
+        }
+
+        void readBooleans(boolean[] a, int off, int len) throws IOException {
+            while (len > 0) {
+                ByteBuffer b = next(1);
+                int k = Math.min(len, b.remaining());
+                for (int i = 0; i < k; i++)
+                    a[off + i] = b.get() != 0;
+                off += k;
+                len -= k;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            ch.close();
+        }
+    }
+
+    // size in bytes of one element of the given type
+    static int elementSize(byte type) {
+        switch (type) {
+            case TYPE_INT:     return 4;
+            case TYPE_DOUBLE:  return 8;
+            case TYPE_BOOLEAN: return 1;
+            case TYPE_BITS:    return 8;
+            case TYPE_LONG:    return 8;
+            case TYPE_FLOAT:   return 4;
+            case TYPE_SHORT:   return 2;
+            case TYPE_BYTE:    return 1;
+            default: throw new IllegalArgumentException("unknown element type: " + type);
+        }
+    }
+
+    // human-readable name of the given type
+    static String typeName(byte type) {
+        switch (type) {
+            case TYPE_INT:     return "int";
+            case TYPE_DOUBLE:  return "double";
+            case TYPE_BOOLEAN: return "boolean";
+            case TYPE_BITS:    return "bits";
+            case TYPE_LONG:    return "long";
+            case TYPE_FLOAT:   return "float";
+            case TYPE_SHORT:   return "short";
+            case TYPE_BYTE:    return "byte";
+            default:           return "type " + type;
         }
     }
 
@@ -0,0 +1,313 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRBigDoubleArray.java
+ * Execution:    java DRBigDoubleArray n
+ * Dependencies: DRArrayIO.java
+ *               DRStats.java
+ *               DRRandom.java
+ *               DROut.java
+ *
+ * An array (or row-major matrix) of doubles with long indices, stored
+ * outside the Java heap.
+ *
+ * The elements live in direct buffers (for arrays up to 64MB), in an
+ * anonymous memory-mapped temporary file (for larger ones), or in a
+ * memory-mapped binary array file, split into 1GB segments. That lifts
+ * the 2^31 element limit of Java arrays, keeps multi-GB data out of the
+ * garbage collector's way, and (for mapped files) lets the operating
+ * system page data in and out, so the array can be larger than physical
+ * memory.
+ *
+ * % java DRBigDoubleArray 300000000
+ * n = 300000000, mean = 0.500, max = 1.000
+ *
+ ***************************************************************************/
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The {@code DRBigDoubleArray} class represents a fixed-size off-heap
+ * array of doubles, optionally viewed as an m-by-n matrix in row-major
+ * order. Element {@code i} is in segment {@code i >>> SEGMENT_SHIFT} at
+ * position {@code i & SEGMENT_MASK}; reductions such as those in
+ * {@link DRStats} walk the segments directly rather than calling
+ * {@link #get(long)} per element.
+ */
+public final class DRBigDoubleArray {
+
+    /**
+     * Each segment holds 2^SEGMENT_SHIFT doubles (1GB), except the last.
+     */
+    public static final int SEGMENT_SHIFT = 27;
+    static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    // largest array allocated in direct buffers, which count against
+    // -XX:MaxDirectMemorySize (by default the maximum heap size)
+    private static final long DIRECT_LIMIT = 1L << 26;
+
+    private final long rows;
+    private final long cols;
+    private final long length;
+    private final DoubleBuffer[] segments;
+    private final MappedByteBuffer[] mapped;   // null unless file-backed
+
+    private DRBigDoubleArray(long rows, long cols, DoubleBuffer[] segments,
+                             MappedByteBuffer[] mapped) {
+        this.rows = rows;
+        this.cols = cols;
+        this.length = rows * cols;
+        this.segments = segments;
+        this.mapped = mapped;
+    }
+
+    /**
+     * Returns an off-heap array of {@code n} zeros.
+     *
+     * @param n the length
+     * @throws IllegalArgumentException if {@code n < 0}
+     */
+    public static DRBigDoubleArray allocate(long n) {
+        return allocate(n, 1);
+    }
+
+    /**
+     * Returns an off-heap m-by-n matrix of zeros. Up to 64MB the elements
+     * are in direct buffers; larger arrays are mapped from a temporary
+     * file that is deleted at once, so they are not limited by the heap
+     * size, and the operating system can page them out under memory
+     * pressure. Use {@link #create} to keep the data in a file.
+     *
+     * @param m the number of rows
+     * @param n the number of columns
+     * @throws IllegalArgumentException if {@code m} or {@code n} is negative
+     * @throws IllegalArgumentException if the temporary file cannot be created
+     */
+    public static DRBigDoubleArray allocate(long m, long n) {
+        long length = validateShape(m, n);
+        DoubleBuffer[] segments = new DoubleBuffer[segmentCount(length)];
+        if (8 * length <= DIRECT_LIMIT) {
+            for (int k = 0; k < segments.length; k++) {
+                int size = segmentSize(length, k);
+                segments[k] = ByteBuffer.allocateDirect(8 * size)
+                                        .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+            }
+            return new DRBigDoubleArray(m, n, segments, null);
+        }
+
+        // the mappings outlive the file, which is removed straight away
+        Path path = null;
+        try {
+            path = Files.createTempFile("DRBigDoubleArray", ".bin");
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                file.setLength(8 * length);
+                FileChannel ch = file.getChannel();
+                for (int k = 0; k < segments.length; k++) {
+                    long pos = ((long) k << SEGMENT_SHIFT) * 8;
+                    segments[k] = ch.map(FileChannel.MapMode.READ_WRITE, pos, 8L * segmentSize(length, k))
+                                    .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+                }
+            }
+            return new DRBigDoubleArray(m, n, segments, null);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not allocate " + m + "-by-" + n + " array", e);
+        }
+        finally {
+            if (path != null) {
+                try {
+                    Files.deleteIfExists(path);
+                }
+                catch (IOException e) {
+                    path.toFile().deleteOnExit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a binary array file (see {@link DRArrayIO}) for an m-by-n
+     * matrix of zeros and maps it read-write. Changes are written back
+     * to the file by the operating system, or on {@link #force()}.
+     *
+     * @param filename the name of the file
+     * @param m the number of rows
+     * @param n the number of columns
+     * @throws IllegalArgumentException if the file cannot be created
+     */
+    public static DRBigDoubleArray create(String filename, long m, long n) {
+        long length = validateShape(m, n);
+        try (DRArrayIO.BinaryWriter out = DRArrayIO.BinaryWriter.open(filename)) {
+            new DRArrayIO.Header(DRArrayIO.TYPE_DOUBLE, 2, m, n).write(out);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not create " + filename, e);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw")) {
+            file.setLength(DRArrayIO.Header.SIZE + 8 * length);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not create " + filename, e);
+        }
+        return map(filename, true);
+    }
+
+    /**
+     * Maps a binary array file of doubles (1D or 2D) without copying it.
+     *
+     * @param filename the name of the file
+     * @param writable whether changes to the array go to the file
+     * @throws IllegalArgumentException if the file cannot be read or does
+     *         not hold doubles
+     */
+    public static DRBigDoubleArray map(String filename, boolean writable) {
+        String mode = writable ? "rw" : "r";
+        FileChannel.MapMode mapMode = writable ? FileChannel.MapMode.READ_WRITE
+                                               : FileChannel.MapMode.READ_ONLY;
+        try (RandomAccessFile file = new RandomAccessFile(filename, mode);
+             DRArrayIO.BinaryReader in = DRArrayIO.BinaryReader.open(filename)) {
+            DRArrayIO.Header h = in.header(DRArrayIO.TYPE_DOUBLE, 0);
+            long length = h.count();
+            FileChannel ch = file.getChannel();
+            DoubleBuffer[] segments = new DoubleBuffer[segmentCount(length)];
+            MappedByteBuffer[] mapped = new MappedByteBuffer[segments.length];
+            for (int k = 0; k < segments.length; k++) {
+                long pos = DRArrayIO.Header.SIZE + ((long) k << SEGMENT_SHIFT) * 8;
+                mapped[k] = ch.map(mapMode, pos, 8L * segmentSize(length, k));
+                segments[k] = mapped[k].order(h.order).asDoubleBuffer();
+            }
+            return new DRBigDoubleArray(h.rows, h.cols, segments, mapped);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not map " + filename, e);
+        }
+    }
+
+    /**
+     * Returns the number of elements.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Returns the number of rows (the length, for a 1D array).
+     */
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns (1, for a 1D array).
+     */
+    public long cols() {
+        return cols;
+    }
+
+    /**
+     * Returns element {@code i}.
+     */
+    public double get(long i) {
+        validateIndex(i);
+        return segments[(int) (i >>> SEGMENT_SHIFT)].get((int) (i & SEGMENT_MASK));
+    }
+
+    /**
+     * Sets element {@code i} to {@code x}.
+     */
+    public void set(long i, double x) {
+        validateIndex(i);
+        segments[(int) (i >>> SEGMENT_SHIFT)].put((int) (i & SEGMENT_MASK), x);
+    }
+
+    /**
+     * Returns the element in row {@code i} and column {@code j}.
+     */
+    public double get(long i, long j) {
+        return get(index(i, j));
+    }
+
+    /**
+     * Sets the element in row {@code i} and column {@code j} to {@code x}.
+     */
+    public void set(long i, long j, double x) {
+        set(index(i, j), x);
+    }
+
+    /**
+     * Returns the number of segments.
+     */
+    public int segments() {
+        return segments.length;
+    }
+
+    /**
+     * Returns segment {@code k} as a buffer positioned at 0. The buffer
+     * shares its elements with the array.
+     */
+    public DoubleBuffer segment(int k) {
+        return segments[k].duplicate();
+    }
+
+    /**
+     * Writes any changes to a file-backed array out to the file.
+     * Does nothing for arrays allocated off the heap.
+     */
+    public void force() {
+        if (mapped == null) return;
+        for (MappedByteBuffer buf : mapped)
+            if (!buf.isReadOnly()) buf.force();
+    }
+
+    private long index(long i, long j) {
+        if (i < 0 || i >= rows)
+            throw new IllegalArgumentException("row index out of bounds: " + i);
+        if (j < 0 || j >= cols)
+            throw new IllegalArgumentException("column index out of bounds: " + j);
+        return i * cols + j;
+    }
+
+    private void validateIndex(long i) {
+        if (i < 0 || i >= length)
+            throw new IllegalArgumentException("index out of bounds: " + i);
+    }
+
+    private static long validateShape(long m, long n) {
+        if (m < 0 || n < 0)
+            throw new IllegalArgumentException("negative dimension: " + m + "-by-" + n);
+        if (n != 0 && m > Long.MAX_VALUE / 8 / n)
+            throw new IllegalArgumentException("array too large: " + m + "-by-" + n);
+        return m * n;
+    }
+
+    private static int segmentCount(long length) {
+        return (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    }
+
+    // number of elements in segment k
+    private static int segmentSize(long length, int k) {
+        return (int) Math.min(1L << SEGMENT_SHIFT, length - ((long) k << SEGMENT_SHIFT));
+    }
+
+    /**
+     * Fills an off-heap array of the given length with uniform random
+     * numbers and prints its mean and maximum.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        long n = Long.parseLong(args[0]);
+        DRBigDoubleArray a = DRBigDoubleArray.allocate(n);
+        for (long i = 0; i < n; i++)
+            a.set(i, DRRandom.uniform());
+        DROut.printf("n = %d, mean = %.3f, max = %.3f\n", n, DRStats.mean(a), DRStats.max(a));
+    }
+}
@@ -0,0 +1,280 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRBitMatrix.java
+ * Execution:    java DRBitMatrix < tinyBoolean2D.txt
+ * Dependencies: DRArrayIO.java
+ *               DROut.java
+ *
+ * A dense m-by-n matrix of booleans packed 64 to a long.
+ *
+ * Each row starts on a word boundary and takes ceil(n/64) words, so a
+ * boolean grid uses 1/8 of the memory of a boolean[][] and row counts
+ * and logical operations process 64 cells per instruction.
+ *
+ * % java DRBitMatrix < tinyBoolean2D.txt
+ * 4 3
+ * 1 1 0
+ * ...
+ * row 0 has 2 true cells
+ *
+ ***************************************************************************/
+
+/**
+ * The {@code DRBitMatrix} class represents a matrix of booleans stored as
+ * bits in a {@code long[]}. Cell (i, j) is bit {@code j % 64} of word
+ * {@code offset(i) + j / 64}; the unused high bits of the last word in
+ * each row are always zero.
+ */
+public final class DRBitMatrix {
+
+    private final int m;            // number of rows
+    private final int n;            // number of columns
+    private final int wordsPerRow;  // ceil(n / 64)
+    private final long[] words;     // row-major, row-aligned bits
+
+    /**
+     * Initializes an m-by-n matrix with all cells {@code false}.
+     *
+     * @param m the number of rows
+     * @param n the number of columns
+     * @throws IllegalArgumentException if {@code m} or {@code n} is negative
+     *         or the matrix does not fit in a {@code long[]}
+     */
+    public DRBitMatrix(int m, int n) {
+        if (m < 0 || n < 0)
+            throw new IllegalArgumentException("negative dimension: " + m + "-by-" + n);
+        this.m = m;
+        this.n = n;
+        this.wordsPerRow = (int) (((long) n + 63) >>> 6);
+        long size = (long) m * wordsPerRow;
+        if (size > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("matrix too large: " + m + "-by-" + n);
+        this.words = new long[(int) size];
+    }
+
+    /**
+     * Initializes a matrix from the specified 2D array of booleans.
+     *
+     * @param a the 2D array; every row must have {@code a[0].length} entries
+     * @throws IllegalArgumentException if {@code a} is {@code null} or ragged
+     */
+    public DRBitMatrix(boolean[][] a) {
+        this(validateNotNull(a).length, a.length == 0 ? 0 : a[0].length);
+        for (int i = 0; i < m; i++) {
+            if (a[i].length != n)
+                throw new IllegalArgumentException("row " + i + " has length "
+                                                   + a[i].length + ", not " + n);
+            for (int j = 0; j < n; j++)
+                if (a[i][j]) words[i * wordsPerRow + (j >>> 6)] |= 1L << j;
+        }
+    }
+
+    /**
+     * Returns the number of rows.
+     */
+    public int rows() {
+        return m;
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int cols() {
+        return n;
+    }
+
+    /**
+     * Returns the number of words in each row.
+     */
+    public int wordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Returns the backing array of words. Changes to the array are
+     * changes to the matrix; keep the unused bits of each row zero.
+     */
+    public long[] words() {
+        return words;
+    }
+
+    /**
+     * Returns the index in {@link #words()} of the first word of row {@code i}.
+     */
+    public int offset(int i) {
+        validateRow(i);
+        return i * wordsPerRow;
+    }
+
+    /**
+     * Returns the cell in row {@code i} and column {@code j}.
+     */
+    public boolean get(int i, int j) {
+        validate(i, j);
+        return (words[i * wordsPerRow + (j >>> 6)] & (1L << j)) != 0;
+    }
+
+    /**
+     * Sets the cell in row {@code i} and column {@code j} to {@code x}.
+     */
+    public void set(int i, int j, boolean x) {
+        validate(i, j);
+        int k = i * wordsPerRow + (j >>> 6);
+        if (x) words[k] |=  (1L << j);
+        else   words[k] &= ~(1L << j);
+    }
+
+    /**
+     * Flips the cell in row {@code i} and column {@code j}.
+     */
+    public void flip(int i, int j) {
+        validate(i, j);
+        words[i * wordsPerRow + (j >>> 6)] ^= 1L << j;
+    }
+
+    /**
+     * Returns the number of {@code true} cells in row {@code i}.
+     */
+    public int cardinality(int i) {
+        validateRow(i);
+        int count = 0;
+        for (int k = i * wordsPerRow, end = k + wordsPerRow; k < end; k++)
+            count += Long.bitCount(words[k]);
+        return count;
+    }
+
+    /**
+     * Returns the number of {@code true} cells in the matrix.
+     */
+    public long cardinality() {
+        long count = 0;
+        for (int k = 0; k < words.length; k++)
+            count += Long.bitCount(words[k]);
+        return count;
+    }
+
+    /**
+     * Returns the number of columns that are {@code true} in both row
+     * {@code i} of this matrix and row {@code k} of {@code that}, without
+     * building the intersection.
+     *
+     * @throws IllegalArgumentException unless both matrices have the
+     *         same number of columns
+     */
+    public int andCardinality(int i, DRBitMatrix that, int k) {
+        validateRow(i);
+        that.validateRow(k);
+        if (that.n != n)
+            throw new IllegalArgumentException("column counts differ: " + n + " and " + that.n);
+        int count = 0;
+        int p = i * wordsPerRow;
+        int q = k * wordsPerRow;
+        for (int w = 0; w < wordsPerRow; w++)
+            count += Long.bitCount(words[p + w] & that.words[q + w]);
+        return count;
+    }
+
+    /**
+     * Replaces this matrix with the cell-wise AND of this matrix and {@code that}.
+     *
+     * @throws IllegalArgumentException unless both have the same dimensions
+     */
+    public void and(DRBitMatrix that) {
+        validateSameSize(that);
+        for (int k = 0; k < words.length; k++)
+            words[k] &= that.words[k];
+    }
+
+    /**
+     * Replaces this matrix with the cell-wise OR of this matrix and {@code that}.
+     *
+     * @throws IllegalArgumentException unless both have the same dimensions
+     */
+    public void or(DRBitMatrix that) {
+        validateSameSize(that);
+        for (int k = 0; k < words.length; k++)
+            words[k] |= that.words[k];
+    }
+
+    /**
+     * Replaces this matrix with the cell-wise XOR of this matrix and {@code that}.
+     *
+     * @throws IllegalArgumentException unless both have the same dimensions
+     */
+    public void xor(DRBitMatrix that) {
+        validateSameSize(that);
+        for (int k = 0; k < words.length; k++)
+            words[k] ^= that.words[k];
+    }
+
+    /**
+     * Clears every cell of this matrix that is {@code true} in {@code that}.
+     *
+     * @throws IllegalArgumentException unless both have the same dimensions
+     */
+    public void andNot(DRBitMatrix that) {
+        validateSameSize(that);
+        for (int k = 0; k < words.length; k++)
+            words[k] &= ~that.words[k];
+    }
+
+    /**
+     * Returns a copy of row {@code i} as an array of booleans.
+     */
+    public boolean[] row(int i) {
+        validateRow(i);
+        boolean[] row = new boolean[n];
+        int p = i * wordsPerRow;
+        for (int j = 0; j < n; j++)
+            row[j] = (words[p + (j >>> 6)] & (1L << j)) != 0;
+        return row;
+    }
+
+    /**
+     * Returns a copy of the matrix as a 2D array of booleans.
+     */
+    public boolean[][] toArray() {
+        boolean[][] a = new boolean[m][];
+        for (int i = 0; i < m; i++)
+            a[i] = row(i);
+        return a;
+    }
+
+    private static boolean[][] validateNotNull(boolean[][] a) {
+        if (a == null)
+            throw new IllegalArgumentException("argument is null");
+        return a;
+    }
+
+    private void validateRow(int i) {
+        if (i < 0 || i >= m)
+            throw new IllegalArgumentException("row index out of bounds: " + i);
+    }
+
+    private void validate(int i, int j) {
+        validateRow(i);
+        if (j < 0 || j >= n)
+            throw new IllegalArgumentException("column index out of bounds: " + j);
+    }
+
+    private void validateSameSize(DRBitMatrix that) {
+        if (that == null)
+            throw new IllegalArgumentException("argument is null");
+        if (that.m != m || that.n != n)
+            throw new IllegalArgumentException("dimensions differ: " + m + "-by-" + n
+                                               + " and " + that.m + "-by-" + that.n);
+    }
+
+    /**
+     * Reads a matrix of booleans from standard input, prints it, and
+     * prints the number of true cells in its first row.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        DRBitMatrix a = DRArrayIO.readBitMatrix();
+        DRArrayIO.print(a);
+        DROut.println("row 0 has " + a.cardinality(0) + " true cells");
+    }
+}
@@ -0,0 +1,189 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRDoubleMatrix.java
+ * Execution:    java DRDoubleMatrix < tinyDouble2D.txt
+ * Dependencies: DRArrayIO.java
+ *               DROut.java
+ *
+ * A dense m-by-n matrix of doubles stored in row-major order in a
+ * single double[] of length m*n.
+ *
+ * Unlike a double[m][n], which is m separate arrays scattered over the
+ * heap, the rows are laid out one after the other in memory, so scanning
+ * the matrix row by row walks a single block of memory.
+ *
+ ***************************************************************************/
+
+import java.nio.DoubleBuffer;
+
+/**
+ * The {@code DRDoubleMatrix} class represents a dense matrix of doubles
+ * backed by a single array. Element (i, j) is stored at index
+ * {@code offset(i) + j} of {@link #data()}.
+ */
+public final class DRDoubleMatrix {
+
+    private final int m;          // number of rows
+    private final int n;          // number of columns
+    private final double[] data;  // row-major elements
+
+    /**
+     * Initializes an m-by-n matrix of zeros.
+     *
+     * @param m the number of rows
+     * @param n the number of columns
+     * @throws IllegalArgumentException if {@code m} or {@code n} is negative
+     *         or {@code m*n} does not fit in an array
+     */
+    public DRDoubleMatrix(int m, int n) {
+        this.m = m;
+        this.n = n;
+        this.data = new double[size(m, n)];
+    }
+
+    /**
+     * Initializes a matrix with a copy of the specified 2D array.
+     *
+     * @param a the 2D array; every row must have {@code a[0].length} entries
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     *         or ragged
+     */
+    public DRDoubleMatrix(double[][] a) {
+        if (a == null)
+            throw new IllegalArgumentException("argument is null");
+        this.m = a.length;
+        this.n = m == 0 ? 0 : a[0].length;
+        this.data = new double[size(m, n)];
+        for (int i = 0; i < m; i++) {
+            if (a[i].length != n)
+                throw new IllegalArgumentException("row " + i + " has length "
+                                                   + a[i].length + ", not " + n);
+            System.arraycopy(a[i], 0, data, i * n, n);
+        }
+    }
+
+    /**
+     * Returns the number of rows.
+     */
+    public int rows() {
+        return m;
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int cols() {
+        return n;
+    }
+
+    /**
+     * Returns the element in row {@code i} and column {@code j}.
+     */
+    public double get(int i, int j) {
+        validate(i, j);
+        return data[i * n + j];
+    }
+
+    /**
+     * Sets the element in row {@code i} and column {@code j} to {@code x}.
+     */
+    public void set(int i, int j, double x) {
+        validate(i, j);
+        data[i * n + j] = x;
+    }
+
+    /**
+     * Returns the backing array, in row-major order. Changes to the
+     * array are changes to the matrix.
+     */
+    public double[] data() {
+        return data;
+    }
+
+    /**
+     * Returns the index in {@link #data()} of the first element of row {@code i}.
+     */
+    public int offset(int i) {
+        validateRow(i);
+        return i * n;
+    }
+
+    /**
+     * Returns a copy of row {@code i}.
+     */
+    public double[] row(int i) {
+        validateRow(i);
+        double[] row = new double[n];
+        System.arraycopy(data, i * n, row, 0, n);
+        return row;
+    }
+
+    /**
+     * Returns a copy of column {@code j}.
+     */
+    public double[] column(int j) {
+        validateColumn(j);
+        double[] col = new double[m];
+        for (int i = 0, k = j; i < m; i++, k += n)
+            col[i] = data[k];
+        return col;
+    }
+
+    /**
+     * Returns a view of row {@code i} that reads and writes the matrix
+     * directly, without copying.
+     */
+    public DoubleBuffer rowView(int i) {
+        validateRow(i);
+        return DoubleBuffer.wrap(data, i * n, n).slice();
+    }
+
+    /**
+     * Returns a copy of the matrix as a 2D array.
+     */
+    public double[][] toArray() {
+        double[][] a = new double[m][n];
+        for (int i = 0; i < m; i++)
+            System.arraycopy(data, i * n, a[i], 0, n);
+        return a;
+    }
+
+    // number of elements of an m-by-n matrix, if it fits in an array
+    static int size(int m, int n) {
+        if (m < 0 || n < 0)
+            throw new IllegalArgumentException("negative dimension: " + m + "-by-" + n);
+        long size = (long) m * n;
+        if (size > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("matrix too large: " + m + "-by-" + n);
+        return (int) size;
+    }
+
+    private void validateRow(int i) {
+        if (i < 0 || i >= m)
+            throw new IllegalArgumentException("row index out of bounds: " + i);
+    }
+
+    private void validateColumn(int j) {
+        if (j < 0 || j >= n)
+            throw new IllegalArgumentException("column index out of bounds: " + j);
+    }
+
+    private void validate(int i, int j) {
+        validateRow(i);
+        validateColumn(j);
+    }
+
+    /**
+     * Reads a matrix from standard input, prints it, and prints
+     * its first column.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        DRDoubleMatrix a = DRArrayIO.readDoubleMatrix();
+        DRArrayIO.print(a);
+        DROut.println();
+        DRArrayIO.print(a.column(0));
+    }
+}
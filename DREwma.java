@@ -0,0 +1,250 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DREwma.java
+ * Execution:    java DREwma alpha < input.txt
+ * Dependencies: DRArrayIO.java
+ *               DROut.java
+ *
+ * Exponentially weighted moving average and variance.
+ *
+ * Each new value x moves the average a fraction alpha of the way towards
+ * itself, so a value k steps old has weight alpha (1 - alpha)^k, and the
+ * variance follows the matching update of West (1979):
+ *
+ *     diff = x - mean
+ *     mean = mean + alpha diff
+ *     var  = (1 - alpha) (var + alpha diff^2)
+ *
+ * For samples at irregular times, a time-decayed average instead halves
+ * the weight of the past every half-life: it keeps the total weight W of
+ * the values so far, decays it by 2^(-dt / halfLife) when time moves on
+ * by dt, adds 1 for each new value, and uses alpha = 1 / W in the same
+ * update. Every update takes constant time and allocates nothing.
+ *
+ * % java DREwma 0.5 < tinyDouble1D.txt
+ *    3.000: mean = 3.000, stddev = 0.000
+ *    1.000: mean = 2.000, stddev = 1.000
+ *    2.000: mean = 2.000, stddev = 0.707
+ *    5.000: mean = 3.500, stddev = 1.581
+ *    4.000: mean = 3.750, stddev = 1.146
+ *
+ ***************************************************************************/
+
+/**
+ * The {@code DREwma} class keeps an exponentially weighted moving average
+ * and variance of a stream of doubles, with either a fixed smoothing
+ * factor or a half-life in time. The first value sets the average.
+ * {@code NaN} values are skipped, so that one bad sample does not spoil
+ * the average forever. It is not thread-safe.
+ */
+public final class DREwma {
+
+    private final double alpha;    // smoothing factor, or 0 for a time-decayed average
+    private final double rate;     // ln 2 / half-life, or 0
+
+    private long n;
+    private double mean;
+    private double var;
+    private double weight;         // total decayed weight, time-decayed only
+    private double latest = Double.NEGATIVE_INFINITY;
+
+    private DREwma(double alpha, double rate) {
+        this.alpha = alpha;
+        this.rate = rate;
+    }
+
+    /**
+     * Returns an empty average with smoothing factor {@code alpha}: each
+     * value has weight {@code alpha}, and earlier values {@code 1 - alpha}
+     * of the weight they had before.
+     *
+     * @param  alpha the smoothing factor
+     * @return the average
+     * @throws IllegalArgumentException unless {@code 0 < alpha <= 1}
+     */
+    public static DREwma ofAlpha(double alpha) {
+        if (!(alpha > 0.0 && alpha <= 1.0))
+            throw new IllegalArgumentException("alpha must be in (0, 1]: " + alpha);
+        return new DREwma(alpha, 0.0);
+    }
+
+    /**
+     * Returns an empty time-decayed average, in which the weight of a
+     * value halves every {@code halfLife} units of time.
+     *
+     * @param  halfLife the half-life
+     * @return the average
+     * @throws IllegalArgumentException unless {@code halfLife} is positive and finite
+     */
+    public static DREwma ofHalfLife(double halfLife) {
+        if (!(halfLife > 0.0 && halfLife < Double.POSITIVE_INFINITY))
+            throw new IllegalArgumentException("half-life must be positive: " + halfLife);
+        return new DREwma(0.0, Math.log(2) / halfLife);
+    }
+
+    /**
+     * Adds a value to an average with a smoothing factor.
+     *
+     * @param x the value
+     * @throws IllegalStateException if this is a time-decayed average
+     */
+    public void add(double x) {
+        if (alpha == 0.0)
+            throw new IllegalStateException("a time-decayed average needs the time of each value");
+        if (x != x) return;
+        update(x, alpha);
+    }
+
+    /**
+     * Adds a value observed at time {@code t}. For an average with a
+     * smoothing factor the time is ignored.
+     *
+     * @param t the time
+     * @param x the value
+     * @throws IllegalArgumentException if {@code t} is not finite or is
+     *         before the time of a value already added
+     */
+    public void add(double t, double x) {
+        if (alpha > 0.0) {
+            add(x);
+            return;
+        }
+        if (t - t != 0.0 || t < latest)
+            throw new IllegalArgumentException("times must be finite and nondecreasing: " + t);
+        if (x != x) return;
+        if (n > 0) weight *= Math.exp(-rate * (t - latest));
+        latest = t;
+        weight += 1.0;
+        update(x, 1.0 / weight);
+    }
+
+    /**
+     * Adds the values in the specified array, in order, to an average
+     * with a smoothing factor.
+     *
+     * @param a the array
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalStateException if this is a time-decayed average
+     */
+    public void addAll(double[] a) {
+        if (a == null)
+            throw new IllegalArgumentException("argument is null");
+        if (alpha == 0.0)
+            throw new IllegalStateException("a time-decayed average needs the time of each value");
+
+        // the same update as add(), on local copies of the fields
+        double beta = 1.0 - alpha;
+        long count = n;
+        double m = mean;
+        double v = var;
+        for (int i = 0; i < a.length; i++) {
+            double x = a[i];
+            if (x != x) continue;
+            if (count++ == 0) {
+                m = x;
+                continue;
+            }
+            double diff = x - m;
+            double incr = alpha * diff;
+            m += incr;
+            v = beta * (v + diff * incr);
+        }
+        n = count;
+        mean = m;
+        var = v;
+    }
+
+    /**
+     * Adds the values in the specified array, observed at the times in
+     * {@code t}, in order.
+     *
+     * @param t the times, in nondecreasing order
+     * @param a the values
+     * @throws IllegalArgumentException if {@code t} or {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code t} and {@code a} have the
+     *         same length and the times are finite and nondecreasing
+     */
+    public void addAll(double[] t, double[] a) {
+        if (t == null || a == null)
+            throw new IllegalArgumentException("argument is null");
+        if (t.length != a.length)
+            throw new IllegalArgumentException("times and values differ in length: " + t.length + " != " + a.length);
+        for (int i = 0; i < a.length; i++)
+            add(t[i], a[i]);
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        n = 0;
+        mean = var = weight = 0.0;
+        latest = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Returns the number of values added, not counting {@code NaN}.
+     */
+    public long count() {
+        return n;
+    }
+
+    /**
+     * Returns the weighted average; {@code Double.NaN} if no values.
+     */
+    public double mean() {
+        return n == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Returns the weighted variance; {@code Double.NaN} if no values.
+     */
+    public double var() {
+        return n == 0 ? Double.NaN : var;
+    }
+
+    /**
+     * Returns the weighted standard deviation; {@code Double.NaN} if no values.
+     */
+    public double stddev() {
+        return Math.sqrt(var());
+    }
+
+    /**
+     * Returns a one-line description of the average.
+     */
+    @Override
+    public String toString() {
+        return String.format("mean = %.3f, stddev = %.3f", mean(), stddev());
+    }
+
+    // moves the average a fraction a of the way to x
+    private void update(double x, double a) {
+        if (n++ == 0) {
+            mean = x;
+            var = 0.0;
+            return;
+        }
+        double diff = x - mean;
+        double incr = a * diff;
+        mean += incr;
+        var = (1.0 - a) * (var + diff * incr);
+    }
+
+    /**
+     * Reads an array of doubles from standard input and prints the moving
+     * average and standard deviation after each one.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        double alpha = Double.parseDouble(args[0]);
+        double[] a = DRArrayIO.readDouble1D();
+        DREwma ewma = DREwma.ofAlpha(alpha);
+        for (int i = 0; i < a.length; i++) {
+            ewma.add(a[i]);
+            DROut.printf("%8.3f: %s\n", a[i], ewma);
+        }
+    }
+}
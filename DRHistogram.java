@@ -0,0 +1,376 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRHistogram.java
+ * Execution:    java DRHistogram n
+ * Dependencies: DRStats.java
+ *               DRDraw.java
+ *               DRRandom.java
+ *               DROut.java
+ *
+ * A high-dynamic-range histogram with a fixed relative precision.
+ *
+ * Buckets are log-linear, as in Gil Tene's HdrHistogram: every power of
+ * two between the lowest and highest trackable values is split into
+ * 2^m buckets of equal width, with m chosen so that a bucket is narrower
+ * than 10^-d of its values for d significant digits. The bucket of a
+ * value is read straight off the exponent and top m mantissa bits of
+ * its IEEE 754 representation, so recording costs a shift, a subtract
+ * and an atomic increment, and longs and doubles share one histogram.
+ *
+ * Counters are striped: each thread increments the counters of one of
+ * a few stripes, picked from its id, so threads on different stripes
+ * never contend. Queries add up the stripes; while other threads are
+ * recording they see some subset of the values recorded so far. The sum
+ * of the values is kept apart, in a DoubleAdder, so that the mean is
+ * computed from the recorded values, not bucket midpoints, and holds for
+ * values outside the trackable range too. The adder sums in no fixed
+ * order, so the mean can vary in its last bits from run to run.
+ *
+ * % java DRHistogram 1000000
+ * n = 1000000, min = 0.000, max = 10.041, mean = 0.693
+ *  p50           0.479
+ *  p90           1.593
+ *  p99           3.183
+ *  p99.9         4.799
+ *  p99.99        6.490
+ *
+ ***************************************************************************/
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * The {@code DRHistogram} class records nonnegative values into
+ * log-linear buckets and answers percentile queries to a fixed number of
+ * significant digits. Recording is lock-free and may be done from any
+ * number of threads at once. Values below the lowest trackable value
+ * share one bucket; values above the highest trackable value are counted
+ * in the top bucket. The minimum and maximum are exact, and the mean is
+ * computed from the recorded values, not bucket midpoints.
+ */
+public final class DRHistogram {
+
+    private static final int MANTISSA_BITS = 52;
+
+    // extremes per stripe are 16 longs apart, a cache line or two
+    private static final int PAD = 16;
+
+    private final double lowest;      // a power of two
+    private final int shift;          // 52 - m
+    private final long base;          // (bits of lowest) >>> shift
+    private final int length;         // buckets per stripe, bucket 0 below lowest
+    private final int stripes;        // a power of two
+    private final AtomicLongArray counts;    // stripe-major
+    private final AtomicLongArray extremes;  // bits of min and max per stripe
+    private final DoubleAdder sum = new DoubleAdder();
+
+    /**
+     * Initializes an empty histogram for values from 1 to 3.6e12 (an hour
+     * in nanoseconds) to 3 significant digits.
+     */
+    public DRHistogram() {
+        this(1.0, 3.6e12, 3);
+    }
+
+    /**
+     * Initializes an empty histogram.
+     *
+     * @param lowest the lowest value to tell apart from 0
+     * @param highest the highest value to track
+     * @param digits the number of significant decimal digits, 1 to 5
+     * @throws IllegalArgumentException unless {@code 0 < lowest < highest}
+     *         and both are finite
+     * @throws IllegalArgumentException unless {@code 1 <= digits <= 5}
+     */
+    public DRHistogram(double lowest, double highest, int digits) {
+        if (!(lowest > 0.0 && lowest < highest && highest < Double.POSITIVE_INFINITY))
+            throw new IllegalArgumentException("need 0 < lowest < highest: " + lowest + ", " + highest);
+        if (digits < 1 || digits > 5)
+            throw new IllegalArgumentException("digits must be between 1 and 5: " + digits);
+        int m = (int) Math.ceil(digits * Math.log(10) / Math.log(2));
+        long octaves = (long) Math.getExponent(highest) - Math.getExponent(lowest) + 1;
+        if (octaves << m > (1 << 24))
+            throw new IllegalArgumentException("range too wide for " + digits + " digits");
+
+        this.lowest = Math.scalb(1.0, Math.getExponent(lowest));
+        this.shift = MANTISSA_BITS - m;
+        this.base = Double.doubleToRawLongBits(this.lowest) >>> shift;
+        this.length = 1 + (int) (octaves << m);
+        int cpus = Runtime.getRuntime().availableProcessors();
+        this.stripes = Math.min(16, Integer.highestOneBit(2 * cpus - 1));
+        this.counts = new AtomicLongArray(stripes * length);
+        this.extremes = new AtomicLongArray(stripes * PAD);
+        reset();
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param x the value
+     * @throws IllegalArgumentException if {@code x} is negative or {@code NaN}
+     */
+    public void record(double x) {
+        record(x, 1);
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param x the value
+     * @throws IllegalArgumentException if {@code x} is negative
+     */
+    public void record(long x) {
+        record((double) x, 1);
+    }
+
+    /**
+     * Records {@code count} occurrences of a value.
+     *
+     * @param x the value
+     * @param count the number of occurrences
+     * @throws IllegalArgumentException if {@code x} is negative or {@code NaN}
+     * @throws IllegalArgumentException if {@code count} is negative
+     */
+    public void record(double x, long count) {
+        if (!(x >= 0.0))
+            throw new IllegalArgumentException("value must be nonnegative: " + x);
+        if (count < 0)
+            throw new IllegalArgumentException("count must be nonnegative: " + count);
+        if (count == 0) return;
+        int stripe = stripe();
+        counts.getAndAdd(stripe * length + index(x), count);
+        sum.add(x * count);
+
+        // nonnegative doubles order like their bits
+        long bits = Double.doubleToRawLongBits(x + 0.0);
+        int e = stripe * PAD;
+        long min = extremes.get(e);
+        while (bits < min && !extremes.compareAndSet(e, min, bits))
+            min = extremes.get(e);
+        long max = extremes.get(e + 1);
+        while (bits > max && !extremes.compareAndSet(e + 1, max, bits))
+            max = extremes.get(e + 1);
+    }
+
+    /**
+     * Records all values in the specified array.
+     *
+     * @param a the array
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException if any value is negative or {@code NaN}
+     */
+    public void recordAll(double[] a) {
+        if (a == null)
+            throw new IllegalArgumentException("argument is null");
+        for (int i = 0; i < a.length; i++)
+            record(a[i], 1);
+    }
+
+    /**
+     * Removes all recorded values. Values recorded concurrently may or
+     * may not be kept.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+        for (int s = 0; s < stripes; s++) {
+            extremes.set(s * PAD, Long.MAX_VALUE);
+            extremes.set(s * PAD + 1, Long.MIN_VALUE);
+        }
+        sum.reset();
+    }
+
+    /**
+     * Returns the number of recorded values.
+     */
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < counts.length(); i++)
+            n += counts.get(i);
+        return n;
+    }
+
+    /**
+     * Returns the smallest recorded value; {@code Double.NaN} if none.
+     */
+    public double min() {
+        long min = Long.MAX_VALUE;
+        for (int s = 0; s < stripes; s++)
+            min = Math.min(min, extremes.get(s * PAD));
+        return min == Long.MAX_VALUE ? Double.NaN : Double.longBitsToDouble(min);
+    }
+
+    /**
+     * Returns the largest recorded value; {@code Double.NaN} if none.
+     */
+    public double max() {
+        long max = Long.MIN_VALUE;
+        for (int s = 0; s < stripes; s++)
+            max = Math.max(max, extremes.get(s * PAD + 1));
+        return max == Long.MIN_VALUE ? Double.NaN : Double.longBitsToDouble(max);
+    }
+
+    /**
+     * Returns the mean of the recorded values; {@code Double.NaN} if none.
+     */
+    public double mean() {
+        long n = count();
+        return n == 0 ? Double.NaN : sum.sum() / n;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall, to the precision of the histogram. The 0th and 100th
+     * percentiles are the exact minimum and maximum.
+     *
+     * @param  p the percentile, between 0 and 100
+     * @return the p-th percentile; {@code Double.NaN} if no values were recorded
+     * @throws IllegalArgumentException unless {@code 0 <= p <= 100}
+     */
+    public double percentile(double p) {
+        return percentiles(p)[0];
+    }
+
+    /**
+     * Returns the percentiles for each of the given percentages, adding
+     * up the stripes only once.
+     *
+     * @param  p the percentiles, each between 0 and 100, in any order
+     * @return the percentiles, in the order of {@code p}
+     * @throws IllegalArgumentException if {@code p} is {@code null}
+     * @throws IllegalArgumentException unless every {@code 0 <= p[i] <= 100}
+     */
+    public double[] percentiles(double... p) {
+        if (p == null)
+            throw new IllegalArgumentException("argument is null");
+        for (double x : p)
+            if (!(x >= 0.0 && x <= 100.0))
+                throw new IllegalArgumentException("percentile must be between 0 and 100: " + x);
+
+        long[] c = snapshot();
+        long n = 0;
+        for (int i = 0; i < length; i++)
+            n += c[i];
+        double min = min();
+        double max = max();
+        double[] q = new double[p.length];
+        for (int j = 0; j < p.length; j++) {
+            if (n == 0) {
+                q[j] = Double.NaN;
+                continue;
+            }
+            // the bucket holding the value of rank ceil(p n), at least 1
+            long rank = Math.max(1, (long) Math.ceil(p[j] / 100.0 * n));
+            long cumulative = 0;
+            int i = 0;
+            while (i < length - 1 && (cumulative += c[i]) < rank)
+                i++;
+            q[j] = Math.min(max, Math.max(min, valueOf(i)));
+            if (p[j] == 0.0)   q[j] = min;
+            if (p[j] == 100.0) q[j] = max;
+        }
+        return q;
+    }
+
+    /**
+     * Plots the counts as bars, using standard draw: bucket counts are
+     * added up into the given number of bars spanning the recorded range,
+     * on a logarithmic axis.
+     *
+     * @param bars the number of bars
+     * @throws IllegalArgumentException unless {@code bars >= 1}
+     */
+    public void plot(int bars) {
+        if (bars < 1)
+            throw new IllegalArgumentException("number of bars must be positive: " + bars);
+        long[] c = snapshot();
+        int first = 0;
+        while (first < length && c[first] == 0)
+            first++;
+        if (first == length) return;
+        int last = length - 1;
+        while (c[last] == 0)
+            last--;
+
+        double[] heights = new double[bars];
+        double width = (last - first + 1.0) / bars;
+        double top = 0.0;
+        for (int i = first; i <= last; i++)
+            heights[(int) Math.min(bars - 1, (i - first) / width)] += c[i];
+        for (double h : heights)
+            top = Math.max(top, h);
+        DRDraw.setYscale(0, 1.05 * top);
+        DRStats.plotBars(heights);
+    }
+
+    /**
+     * Returns a one-line description of the recorded values.
+     */
+    @Override
+    public String toString() {
+        return String.format("n = %d, min = %.3f, max = %.3f, mean = %.3f", count(), min(), max(), mean());
+    }
+
+    // bucket of a nonnegative value: 0 below lowest, clamped at the top
+    private int index(double x) {
+        if (x < lowest) return 0;
+        long i = (Double.doubleToRawLongBits(x) >>> shift) - base + 1;
+        return (int) Math.min(i, length - 1);
+    }
+
+    // middle of bucket i
+    private double valueOf(int i) {
+        if (i == 0) return lowest / 2;
+        double lo = Double.longBitsToDouble((i - 1 + base) << shift);
+        double hi = Double.longBitsToDouble((i + base) << shift);
+        return (lo + hi) / 2;
+    }
+
+    // bucket counts added up over the stripes
+    private long[] snapshot() {
+        long[] c = new long[length];
+        for (int s = 0; s < stripes; s++)
+            for (int i = 0; i < length; i++)
+                c[i] += counts.get(s * length + i);
+        return c;
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (stripes - 1);
+    }
+
+    /**
+     * Records n exponentially distributed values (median about 0.48) from
+     * four threads, and prints some percentiles.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int n = Integer.parseInt(args[0]);
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++)
+            a[i] = DRRandom.exp(Math.log(2) / 0.48);
+
+        DRHistogram histogram = new DRHistogram(1e-6, 1e6, 3);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int lo = t * n / threads.length;
+            int hi = (t + 1) * n / threads.length;
+            threads[t] = new Thread(() -> {
+                for (int i = lo; i < hi; i++)
+                    histogram.record(a[i]);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        DROut.println(histogram);
+        String[] labels = { "50", "90", "99", "99.9", "99.99" };
+        double[] q = histogram.percentiles(50, 90, 99, 99.9, 99.99);
+        for (int i = 0; i < q.length; i++)
+            DROut.printf(" p%-8s %9.3f\n", labels[i], q[i]);
+    }
+}
@@ -376,13 +376,26 @@ public final class DRIn {
         resync();
     }
 
-    // If DRIn changes, use this to reinitialize the scanner.
-    private static void resync() {
+    /**
+     * Reads subsequent input from the specified stream instead of
+     * standard input; pass {@code System.in} to switch back.
+     *
+     * @param in the input stream
+     * @throws IllegalArgumentException if {@code in} is {@code null}
+     */
+    public static void setInput(java.io.InputStream in) {
+        if (in == null)
+            throw new IllegalArgumentException("argument is null");
         setScanner(new Scanner(
-                       new java.io.BufferedInputStream(System.in),
+                       new java.io.BufferedInputStream(in),
                        CHARSET_NAME));
     }
 
+    // If DRIn changes, use this to reinitialize the scanner.
+    private static void resync() {
+        setInput(System.in);
+    }
+
     private static void setScanner(Scanner scanner) {
         DRIn.scanner = scanner;
         DRIn.scanner.useLocale(LOCALE);
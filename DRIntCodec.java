@@ -0,0 +1,525 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRIntCodec.java
+ * Execution:    java DRIntCodec < input.txt
+ * Dependencies: DRArrayIO.java
+ *               DROut.java
+ *
+ * Compressed encodings for arrays and streams of integers.
+ *
+ * - delta: each value is stored as the difference from the previous one,
+ *   zigzag-mapped so small negative differences stay small, and written
+ *   as a varint (7 bits per byte, high bit set on all but the last byte).
+ *   Good for sorted or slowly varying ids.
+ *
+ * - packed: frame-of-reference bit packing. Values are grouped in blocks
+ *   of 128; each block stores its count and minimum as varints, then the
+ *   bit width b of the largest (value - minimum), then every
+ *   (value - minimum) in exactly b bits. Good for values in a narrow range.
+ *
+ * Both encodings are self-delimiting, so an encoded stream can be decoded
+ * until it ends without knowing the count in advance.
+ *
+ * % java DRIntCodec < in.txt
+ * 5 values, 20 bytes raw, 5 bytes delta, 5 bytes packed
+ *
+ ***************************************************************************/
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * The {@code DRIntCodec} class provides delta/zigzag/varint and
+ * frame-of-reference encodings for {@code int[]} and {@code long[]},
+ * both for whole arrays and for streams of values. {@code DRArrayIO}
+ * uses them for compressed binary array files.
+ */
+public final class DRIntCodec {
+
+    // values per frame-of-reference block
+    private static final int BLOCK_SIZE = 128;
+
+    // bytes buffered between an encoder or decoder and its stream
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // don't instantiate
+    private DRIntCodec() { }
+
+    /**
+     * Maps a signed value to an unsigned one so that values near zero,
+     * positive or negative, get small codes: 0, -1, 1, -2, 2, ... map to
+     * 0, 1, 2, 3, 4, ...
+     */
+    public static long zigzag(long x) {
+        return (x << 1) ^ (x >> 63);
+    }
+
+    /**
+     * Inverts {@link #zigzag(long)}.
+     */
+    public static long unzigzag(long z) {
+        return (z >>> 1) ^ -(z & 1);
+    }
+
+    /**
+     * Accepts values one at a time and writes them, encoded, to a stream.
+     */
+    public interface Encoder {
+
+        /**
+         * Encodes the next value.
+         */
+        void add(long x) throws IOException;
+
+        /**
+         * Writes out everything added so far and flushes the stream.
+         * More values may be added afterwards.
+         */
+        void flush() throws IOException;
+    }
+
+    /**
+     * Reads encoded values one at a time from a stream.
+     */
+    public interface Decoder {
+
+        /**
+         * Returns true if there is another value.
+         */
+        boolean hasNext() throws IOException;
+
+        /**
+         * Returns the next value.
+         *
+         * @throws EOFException if there are no more values
+         */
+        long next() throws IOException;
+    }
+
+    /**
+     * Returns a delta/zigzag/varint encoder that writes to {@code out}.
+     */
+    public static Encoder deltaEncoder(OutputStream out) {
+        return new DeltaEncoder(out);
+    }
+
+    /**
+     * Returns a decoder for values written by a delta encoder.
+     */
+    public static Decoder deltaDecoder(InputStream in) {
+        return new DeltaDecoder(in);
+    }
+
+    /**
+     * Returns a frame-of-reference bit-packing encoder that writes to {@code out}.
+     */
+    public static Encoder packedEncoder(OutputStream out) {
+        return new PackedEncoder(out);
+    }
+
+    /**
+     * Returns a decoder for values written by a packed encoder.
+     */
+    public static Decoder packedDecoder(InputStream in) {
+        return new PackedDecoder(in);
+    }
+
+    /**
+     * Returns the delta encoding of the specified array.
+     */
+    public static byte[] encodeDelta(int[] a) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(a.length + 16);
+        Encoder e = deltaEncoder(bytes);
+        try {
+            for (int i = 0; i < a.length; i++)
+                e.add(a[i]);
+            e.flush();
+        }
+        catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the delta encoding of the specified array.
+     */
+    public static byte[] encodeDelta(long[] a) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(a.length + 16);
+        Encoder e = deltaEncoder(bytes);
+        try {
+            for (int i = 0; i < a.length; i++)
+                e.add(a[i]);
+            e.flush();
+        }
+        catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the packed encoding of the specified array.
+     */
+    public static byte[] encodePacked(int[] a) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(a.length + 16);
+        Encoder e = packedEncoder(bytes);
+        try {
+            for (int i = 0; i < a.length; i++)
+                e.add(a[i]);
+            e.flush();
+        }
+        catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the packed encoding of the specified array.
+     */
+    public static byte[] encodePacked(long[] a) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(a.length + 16);
+        Encoder e = packedEncoder(bytes);
+        try {
+            for (int i = 0; i < a.length; i++)
+                e.add(a[i]);
+            e.flush();
+        }
+        catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes {@code n} values from the specified decoder into an array
+     * of integers.
+     *
+     * @throws IllegalArgumentException if a value does not fit in an {@code int}
+     * @throws EOFException if there are fewer than {@code n} values
+     */
+    public static int[] readInts(Decoder d, int n) throws IOException {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) {
+            long x = d.next();
+            if (x != (int) x)
+                throw new IllegalArgumentException("value does not fit in an int: " + x);
+            a[i] = (int) x;
+        }
+        return a;
+    }
+
+    /**
+     * Decodes {@code n} values from the specified decoder into an array
+     * of longs.
+     *
+     * @throws EOFException if there are fewer than {@code n} values
+     */
+    public static long[] readLongs(Decoder d, int n) throws IOException {
+        long[] a = new long[n];
+        for (int i = 0; i < n; i++)
+            a[i] = d.next();
+        return a;
+    }
+
+    /**
+     * Decodes {@code n} integers from a delta-encoded array of bytes.
+     */
+    public static int[] decodeDeltaInt(byte[] b, int n) {
+        try {
+            return readInts(deltaDecoder(new ByteArrayInputStream(b)), n);
+        }
+        catch (IOException x) {
+            throw new IllegalArgumentException("truncated encoding", x);
+        }
+    }
+
+    /**
+     * Decodes {@code n} longs from a delta-encoded array of bytes.
+     */
+    public static long[] decodeDeltaLong(byte[] b, int n) {
+        try {
+            return readLongs(deltaDecoder(new ByteArrayInputStream(b)), n);
+        }
+        catch (IOException x) {
+            throw new IllegalArgumentException("truncated encoding", x);
+        }
+    }
+
+    /**
+     * Decodes {@code n} integers from a packed array of bytes.
+     */
+    public static int[] decodePackedInt(byte[] b, int n) {
+        try {
+            return readInts(packedDecoder(new ByteArrayInputStream(b)), n);
+        }
+        catch (IOException x) {
+            throw new IllegalArgumentException("truncated encoding", x);
+        }
+    }
+
+    /**
+     * Decodes {@code n} longs from a packed array of bytes.
+     */
+    public static long[] decodePackedLong(byte[] b, int n) {
+        try {
+            return readLongs(packedDecoder(new ByteArrayInputStream(b)), n);
+        }
+        catch (IOException x) {
+            throw new IllegalArgumentException("truncated encoding", x);
+        }
+    }
+
+    // buffered byte output shared by the encoders
+    private abstract static class ByteWriter implements Encoder {
+        private final OutputStream out;
+        private final byte[] buf = new byte[BUFFER_SIZE];
+        private int pos;
+
+        ByteWriter(OutputStream out) {
+            if (out == null)
+                throw new IllegalArgumentException("argument is null");
+            this.out = out;
+        }
+
+        final void put(int b) throws IOException {
+            if (pos == buf.length) drain();
+            buf[pos++] = (byte) b;
+        }
+
+        final void putVarint(long v) throws IOException {
+            while ((v & ~0x7FL) != 0) {
+                put((int) (v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            put((int) v);
+        }
+
+        final void drain() throws IOException {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+    }
+
+    // buffered byte input shared by the decoders
+    private abstract static class ByteReader implements Decoder {
+        private final InputStream in;
+        private final byte[] buf = new byte[BUFFER_SIZE];
+        private int pos;
+        private int limit;
+
+        ByteReader(InputStream in) {
+            if (in == null)
+                throw new IllegalArgumentException("argument is null");
+            this.in = in;
+        }
+
+        // next byte, or -1 at the end of the stream
+        final int peek() throws IOException {
+            if (pos == limit) {
+                limit = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buf[pos] & 0xFF;
+        }
+
+        final int get() throws IOException {
+            int b = peek();
+            if (b < 0) throw new EOFException("no more encoded values");
+            pos++;
+            return b;
+        }
+
+        final long getVarint() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 63; shift += 7) {
+                int b = get();
+                v |= (long) (b & 0x7F) << shift;
+                if (b < 0x80) return v;
+            }
+
+            // a 10th byte holds only bit 63, and must be the last
+            int b = get();
+            if (b > 1)
+                throw new IllegalArgumentException("malformed varint");
+            return v | (long) b << 63;
+        }
+    }
+
+    private static final class DeltaEncoder extends ByteWriter {
+        private long previous;
+
+        DeltaEncoder(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void add(long x) throws IOException {
+            putVarint(zigzag(x - previous));
+            previous = x;
+        }
+    }
+
+    private static final class DeltaDecoder extends ByteReader {
+        private long previous;
+
+        DeltaDecoder(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return peek() >= 0;
+        }
+
+        @Override
+        public long next() throws IOException {
+            previous += unzigzag(getVarint());
+            return previous;
+        }
+    }
+
+    private static final class PackedEncoder extends ByteWriter {
+        private final long[] block = new long[BLOCK_SIZE];
+        private int count;
+
+        PackedEncoder(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void add(long x) throws IOException {
+            block[count++] = x;
+            if (count == BLOCK_SIZE) writeBlock();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) writeBlock();
+            super.flush();
+        }
+
+        // count, minimum, width, then the offsets from the minimum
+        private void writeBlock() throws IOException {
+            long min = block[0];
+            for (int i = 1; i < count; i++)
+                if (block[i] < min) min = block[i];
+            long bitsUsed = 0;
+            for (int i = 0; i < count; i++)
+                bitsUsed |= block[i] - min;
+            int width = 64 - Long.numberOfLeadingZeros(bitsUsed);
+
+            putVarint(count);
+            putVarint(zigzag(min));
+            put(width);
+
+            long acc = 0;     // pending bits, low bits first
+            int bits = 0;     // number of pending bits, always < 8 between values
+            for (int i = 0; i < count; i++) {
+                long v = block[i] - min;
+                int remaining = width;
+                while (remaining > 0) {
+                    int take = Math.min(remaining, 64 - bits);
+                    long part = take == 64 ? v : v & ((1L << take) - 1);
+                    acc |= part << bits;
+                    bits += take;
+                    remaining -= take;
+                    v = take == 64 ? 0 : v >>> take;
+                    while (bits >= 8) {
+                        put((int) acc);
+                        acc >>>= 8;
+                        bits -= 8;
+                    }
+                }
+            }
+            if (bits > 0) put((int) acc);
+            count = 0;
+        }
+    }
+
+    private static final class PackedDecoder extends ByteReader {
+        private final long[] block = new long[BLOCK_SIZE];
+        private int count;
+        private int next;
+
+        PackedDecoder(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return next < count || peek() >= 0;
+        }
+
+        @Override
+        public long next() throws IOException {
+            if (next == count) readBlock();
+            return block[next++];
+        }
+
+        private void readBlock() throws IOException {
+            long n = getVarint();
+            if (n < 1 || n > BLOCK_SIZE)
+                throw new IllegalArgumentException("malformed block of " + n + " values");
+            long min = unzigzag(getVarint());
+            int width = get();
+            if (width > 64)
+                throw new IllegalArgumentException("malformed block width " + width);
+
+            long acc = 0;
+            int bits = 0;
+            for (int i = 0; i < n; i++) {
+                long v = 0;
+                int got = 0;
+                while (got < width) {
+                    if (bits == 0) {
+                        acc = get();
+                        bits = 8;
+                    }
+                    int take = Math.min(width - got, bits);
+                    v |= (acc & ((1L << take) - 1)) << got;
+                    acc >>>= take;
+                    bits -= take;
+                    got += take;
+                }
+                block[i] = min + v;
+            }
+            count = (int) n;
+            next = 0;
+        }
+    }
+
+    /**
+     * Reads an array of integers from standard input and reports its
+     * size raw and under each encoding.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int[] a = DRArrayIO.readInt1D();
+        byte[] delta = encodeDelta(a);
+        byte[] packed = encodePacked(a);
+        DROut.println(a.length + " values, " + 4L * a.length + " bytes raw, "
+                      + delta.length + " bytes delta, " + packed.length + " bytes packed");
+        if (!java.util.Arrays.equals(a, decodeDeltaInt(delta, a.length))
+            || !java.util.Arrays.equals(a, decodePackedInt(packed, a.length)))
+            DROut.println("round trip failed");
+    }
+}
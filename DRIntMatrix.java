@@ -0,0 +1,180 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRIntMatrix.java
+ * Execution:    java DRIntMatrix < input.txt
+ * Dependencies: DRArrayIO.java
+ *               DRDoubleMatrix.java
+ *               DROut.java
+ *
+ * A dense m-by-n matrix of integers stored in row-major order in a
+ * single int[] of length m*n.
+ *
+ * Unlike a int[m][n], which is m separate arrays scattered over the
+ * heap, the rows are laid out one after the other in memory, so scanning
+ * the matrix row by row walks a single block of memory.
+ *
+ ***************************************************************************/
+
+import java.nio.IntBuffer;
+
+/**
+ * The {@code DRIntMatrix} class represents a dense matrix of integers
+ * backed by a single array. Element (i, j) is stored at index
+ * {@code offset(i) + j} of {@link #data()}.
+ */
+public final class DRIntMatrix {
+
+    private final int m;          // number of rows
+    private final int n;          // number of columns
+    private final int[] data;  // row-major elements
+
+    /**
+     * Initializes an m-by-n matrix of zeros.
+     *
+     * @param m the number of rows
+     * @param n the number of columns
+     * @throws IllegalArgumentException if {@code m} or {@code n} is negative
+     *         or {@code m*n} does not fit in an array
+     */
+    public DRIntMatrix(int m, int n) {
+        this.m = m;
+        this.n = n;
+        this.data = new int[DRDoubleMatrix.size(m, n)];
+    }
+
+    /**
+     * Initializes a matrix with a copy of the specified 2D array.
+     *
+     * @param a the 2D array; every row must have {@code a[0].length} entries
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     *         or ragged
+     */
+    public DRIntMatrix(int[][] a) {
+        if (a == null)
+            throw new IllegalArgumentException("argument is null");
+        this.m = a.length;
+        this.n = m == 0 ? 0 : a[0].length;
+        this.data = new int[DRDoubleMatrix.size(m, n)];
+        for (int i = 0; i < m; i++) {
+            if (a[i].length != n)
+                throw new IllegalArgumentException("row " + i + " has length "
+                                                   + a[i].length + ", not " + n);
+            System.arraycopy(a[i], 0, data, i * n, n);
+        }
+    }
+
+    /**
+     * Returns the number of rows.
+     */
+    public int rows() {
+        return m;
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int cols() {
+        return n;
+    }
+
+    /**
+     * Returns the element in row {@code i} and column {@code j}.
+     */
+    public int get(int i, int j) {
+        validate(i, j);
+        return data[i * n + j];
+    }
+
+    /**
+     * Sets the element in row {@code i} and column {@code j} to {@code x}.
+     */
+    public void set(int i, int j, int x) {
+        validate(i, j);
+        data[i * n + j] = x;
+    }
+
+    /**
+     * Returns the backing array, in row-major order. Changes to the
+     * array are changes to the matrix.
+     */
+    public int[] data() {
+        return data;
+    }
+
+    /**
+     * Returns the index in {@link #data()} of the first element of row {@code i}.
+     */
+    public int offset(int i) {
+        validateRow(i);
+        return i * n;
+    }
+
+    /**
+     * Returns a copy of row {@code i}.
+     */
+    public int[] row(int i) {
+        validateRow(i);
+        int[] row = new int[n];
+        System.arraycopy(data, i * n, row, 0, n);
+        return row;
+    }
+
+    /**
+     * Returns a copy of column {@code j}.
+     */
+    public int[] column(int j) {
+        validateColumn(j);
+        int[] col = new int[m];
+        for (int i = 0, k = j; i < m; i++, k += n)
+            col[i] = data[k];
+        return col;
+    }
+
+    /**
+     * Returns a view of row {@code i} that reads and writes the matrix
+     * directly, without copying.
+     */
+    public IntBuffer rowView(int i) {
+        validateRow(i);
+        return IntBuffer.wrap(data, i * n, n).slice();
+    }
+
+    /**
+     * Returns a copy of the matrix as a 2D array.
+     */
+    public int[][] toArray() {
+        int[][] a = new int[m][n];
+        for (int i = 0; i < m; i++)
+            System.arraycopy(data, i * n, a[i], 0, n);
+        return a;
+    }
+
+    private void validateRow(int i) {
+        if (i < 0 || i >= m)
+            throw new IllegalArgumentException("row index out of bounds: " + i);
+    }
+
+    private void validateColumn(int j) {
+        if (j < 0 || j >= n)
+            throw new IllegalArgumentException("column index out of bounds: " + j);
+    }
+
+    private void validate(int i, int j) {
+        validateRow(i);
+        validateColumn(j);
+    }
+
+    /**
+     * Reads a matrix from standard input, prints it, and prints
+     * its first column.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        DRIntMatrix a = DRArrayIO.readIntMatrix();
+        DRArrayIO.print(a);
+        DROut.println();
+        DRArrayIO.print(a.column(0));
+    }
+}
@@ -3,17 +3,31 @@
  *
  * Compilation: javac DROut.java
  * Execution:   java DROut
- * Dependencies: none
+ * Dependencies: DRParallelGzipOutputStream.java
  *
  * Writes data of various types to standar output
  *
+ * Output can be redirected to any stream, or to a gzip file that is
+ * compressed on the fly (optionally on several cores), with
+ * setOutput() and setGzipOutput().
+ *
+ * Opt-in instrumentation (enableMetrics(), or -DDROut.metrics=true)
+ * counts bytes, flushes and write calls reaching the underlying stream,
+ * the time spent blocked in them and the time spent formatting in
+ * printf(), and prints a summary to standard error on exit.
  *
  **************************************************************************/
 
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
 
 /*
  * This class privides methos for printing strings and numbers to standard
@@ -28,18 +42,29 @@ public final class DROut {
     // assume language = English, contry = US
     private static final Locale LOCALE = Locale.US;
 
+    // buffer size for gzip files
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
     // send output here
     private static PrintWriter out;
 
+    // the byte stream underneath out (System.out unless redirected)
+    private static OutputStream stream;
+
+    // output metrics, null unless enabled
+    private static volatile Metrics metrics;
+
     // this is called before invoking any methods
     static {
-        try {
-            out = new PrintWriter(new OutputStreamWriter(
-                                      System.out, CHARSET_NAME), true);
-        }
-        catch (UnsupportedEncodingException e) {
-            System.out.println(e);
-        }
+        setOutput(System.out);
+        if (Boolean.getBoolean("DROut.metrics")) enableMetrics();
+
+        // make sure compressed output gets its trailer, then report
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            release();
+            Metrics m = metrics;
+            if (m != null) System.err.println(m);
+        }));
     }
 
     // don't instantiate
@@ -187,18 +212,307 @@ public final class DROut {
         out.flush();
     }
 
+    /**
+     * Writes a sequence of characters to standard output without flushing.
+     * Bulk printers use this to hand over large blocks of text and then
+     * call {@link #print()} once at the end.
+     *
+     * @param s the characters to write
+     */
+    public static void append(CharSequence s) {
+        out.append(s);
+    }
+
     /*
      * Prints formatted string to standard output, using the specified format
      * string and arguments, and then flushes standard output.
      */
     public static void printf(String format, Object... args) {
-        out.printf(LOCALE, format, args);
-        out.flush();
+        printf(LOCALE, format, args);
     }
 
+    /*
+     * Prints formatted string to standard output, using the specified locale,
+     * format string and arguments, and then flushes standard output.
+     */
     public static void printf(Locale locale, String format, Object... args) {
-        out.printf(locale, format, args);
+        Metrics m = metrics;
+        if (m == null) {
+            out.printf(locale, format, args);
+        }
+        else {
+            long start = System.nanoTime();
+            String s = String.format(locale, format, args);
+            m.formatNanos.add(System.nanoTime() - start);
+            m.formats.increment();
+            out.print(s);
+        }
+        out.flush();
+    }
+
+    /**
+     * Sends all subsequent output to the specified stream. A previously
+     * redirected stream is flushed and closed first.
+     *
+     * @param os the output stream
+     * @throws IllegalArgumentException if {@code os} is {@code null}
+     */
+    public static synchronized void setOutput(OutputStream os) {
+        if (os == null)
+            throw new IllegalArgumentException("argument is null");
+        release();
+        stream = os;
+        wrap();
+    }
+
+    // (re)build the writer on top of stream, metered if metrics are on
+    private static void wrap() {
+        OutputStream os = stream;
+        Metrics m = metrics;
+        if (m != null) os = new MeteredOutputStream(os, m);
+        try {
+            out = new PrintWriter(new OutputStreamWriter(os, CHARSET_NAME), true);
+        }
+        catch (UnsupportedEncodingException e) {
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Starts collecting output metrics, from zero, and arranges for a
+     * summary to be printed to standard error when the program exits.
+     * Metrics stay on across later calls to {@link #setOutput}.
+     */
+    public static synchronized void enableMetrics() {
         out.flush();
+        metrics = new Metrics();
+        wrap();
+    }
+
+    /**
+     * Stops collecting output metrics.
+     */
+    public static synchronized void disableMetrics() {
+        out.flush();
+        metrics = null;
+        wrap();
+    }
+
+    /**
+     * Returns the output metrics collected since they were enabled.
+     *
+     * @return the metrics, or {@code null} if they are not enabled
+     */
+    public static Metrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Sends all subsequent output to the specified file, gzip-compressed
+     * on the fly. Call {@link #close()} when done; otherwise the file is
+     * completed when the program exits.
+     *
+     * @param filename the name of the file
+     * @throws IllegalArgumentException if the file cannot be opened
+     */
+    public static void setGzipOutput(String filename) {
+        setGzipOutput(filename, 1);
+    }
+
+    /**
+     * Sends all subsequent output to the specified file, gzip-compressed
+     * on the fly using the specified number of threads. With more than
+     * one thread the output is split into blocks that are compressed
+     * concurrently into independent gzip members.
+     *
+     * @param filename the name of the file
+     * @param threads the number of compression threads
+     * @throws IllegalArgumentException if the file cannot be opened
+     * @throws IllegalArgumentException if {@code threads < 1}
+     */
+    public static void setGzipOutput(String filename, int threads) {
+        if (filename == null)
+            throw new IllegalArgumentException("argument is null");
+        try {
+            setGzipOutput(new FileOutputStream(filename), threads);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not open " + filename, e);
+        }
+    }
+
+    /**
+     * Sends all subsequent output to the specified stream, gzip-compressed
+     * on the fly using the specified number of threads.
+     *
+     * @param os the stream to write compressed data to
+     * @param threads the number of compression threads
+     * @throws IllegalArgumentException if {@code os} is {@code null}
+     * @throws IllegalArgumentException if {@code threads < 1}
+     */
+    public static void setGzipOutput(OutputStream os, int threads) {
+        if (os == null)
+            throw new IllegalArgumentException("argument is null");
+        if (threads < 1)
+            throw new IllegalArgumentException
+                ("number of threads must be positive: " + threads);
+        try {
+            if (threads == 1)
+                setOutput(new GZIPOutputStream(
+                              new BufferedOutputStream(os, GZIP_BUFFER_SIZE),
+                              GZIP_BUFFER_SIZE));
+            else
+                setOutput(new DRParallelGzipOutputStream(os, threads));
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not start compression", e);
+        }
+    }
+
+    /**
+     * Flushes and closes a redirected output stream, completing any
+     * compressed output, and goes back to standard output.
+     */
+    public static synchronized void close() {
+        if (stream == System.out) {
+            out.flush();
+            return;
+        }
+        setOutput(System.out);
+    }
+
+    // flush, and close the current stream unless it is standard output
+    private static synchronized void release() {
+        if (out == null) return;
+        if (stream == System.out) out.flush();
+        else                      out.close();
+    }
+
+    /**
+     * Counters for the output written through {@code DROut}. Byte, write
+     * and flush counts are taken at the underlying stream, after encoding
+     * and buffering, so they show how often output actually leaves the
+     * program.
+     */
+    public static final class Metrics {
+        private final LongAdder bytes       = new LongAdder();
+        private final LongAdder writes      = new LongAdder();
+        private final LongAdder flushes     = new LongAdder();
+        private final LongAdder writeNanos  = new LongAdder();
+        private final LongAdder formats     = new LongAdder();
+        private final LongAdder formatNanos = new LongAdder();
+        private final long start = System.nanoTime();
+
+        private Metrics() { }
+
+        /**
+         * Returns the number of bytes written to the underlying stream.
+         */
+        public long bytesWritten() {
+            return bytes.sum();
+        }
+
+        /**
+         * Returns the number of write calls on the underlying stream.
+         */
+        public long writeCalls() {
+            return writes.sum();
+        }
+
+        /**
+         * Returns the number of flushes of the underlying stream.
+         */
+        public long flushes() {
+            return flushes.sum();
+        }
+
+        /**
+         * Returns the time, in nanoseconds, spent blocked in write and
+         * flush calls on the underlying stream.
+         */
+        public long writeNanos() {
+            return writeNanos.sum();
+        }
+
+        /**
+         * Returns the number of calls to {@code printf}.
+         */
+        public long printfCalls() {
+            return formats.sum();
+        }
+
+        /**
+         * Returns the time, in nanoseconds, spent formatting in
+         * {@code printf}.
+         */
+        public long formatNanos() {
+            return formatNanos.sum();
+        }
+
+        /**
+         * Returns the time, in nanoseconds, since metrics were enabled.
+         */
+        public long elapsedNanos() {
+            return System.nanoTime() - start;
+        }
+
+        /**
+         * Returns a one-line summary of the metrics.
+         */
+        @Override
+        public String toString() {
+            double elapsed = elapsedNanos() / 1e9;
+            double written = writeNanos() / 1e9;
+            double mb = bytesWritten() / 1e6;
+            return String.format(LOCALE,
+                "DROut: %d bytes, %d writes, %d flushes, %.3f s blocked in writes"
+                + " (%.1f MB/s), %d printf, %.3f s formatting, %.3f s elapsed",
+                bytesWritten(), writeCalls(), flushes(), written,
+                written > 0 ? mb / written : 0.0,
+                printfCalls(), formatNanos() / 1e9, elapsed);
+        }
+    }
+
+    // counts and times everything that reaches the underlying stream
+    private static final class MeteredOutputStream extends OutputStream {
+        private final OutputStream os;
+        private final Metrics m;
+
+        MeteredOutputStream(OutputStream os, Metrics m) {
+            this.os = os;
+            this.m = m;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            os.write(b);
+            m.writeNanos.add(System.nanoTime() - start);
+            m.writes.increment();
+            m.bytes.increment();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            os.write(b, off, len);
+            m.writeNanos.add(System.nanoTime() - start);
+            m.writes.increment();
+            m.bytes.add(len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            os.flush();
+            m.writeNanos.add(System.nanoTime() - start);
+            m.flushes.increment();
+        }
+
+        @Override
+        public void close() throws IOException {
+            os.close();
+        }
     }
 
     /* Unit tests
@@ -0,0 +1,224 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRParallelGzipOutputStream.java
+ * Execution:    java DRParallelGzipOutputStream < input.txt > output.gz
+ * Dependencies: none
+ *
+ * An output stream that gzips its data on several cores at once.
+ *
+ * The data is cut into fixed-size blocks and every block is deflated
+ * by a worker thread into an independent gzip member. The members are
+ * written out in order, so the result is a multi-member gzip file that
+ * gunzip, zcat and java.util.zip.GZIPInputStream all read back as the
+ * original bytes.
+ *
+ * % java DRParallelGzipOutputStream < tinyDouble2D.txt | zcat
+ * 5 3
+ *  .000  .270  .000
+ *  ...
+ *
+ ***************************************************************************/
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The {@code DRParallelGzipOutputStream} class compresses blocks of output
+ * concurrently, each one as a separate gzip member.
+ * <p>
+ * At most two blocks per thread are in flight at any time, so memory use
+ * stays bounded no matter how much is written. Calling {@link #flush()}
+ * writes every member that has finished compressing but does not cut the
+ * current block short; use {@link #finish()} or {@link #close()} to
+ * complete the output.
+ */
+public final class DRParallelGzipOutputStream extends OutputStream {
+
+    // default size of a block of uncompressed data
+    private static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    // compressed members are written here
+    private final OutputStream out;
+
+    // worker threads that do the deflating
+    private final ExecutorService pool;
+
+    // blocks being compressed, in output order
+    private final ArrayDeque<Future<byte[]>> pending;
+    private final int maxPending;
+
+    // block currently being filled
+    private final int blockSize;
+    private byte[] block;
+    private int count;
+
+    private boolean finished;
+
+    /**
+     * Initializes a parallel gzip stream on top of {@code out} using
+     * the specified number of threads and 1MB blocks.
+     *
+     * @param out the stream to write compressed data to
+     * @param threads the number of compression threads
+     * @throws IllegalArgumentException if {@code out} is {@code null}
+     * @throws IllegalArgumentException if {@code threads < 1}
+     */
+    public DRParallelGzipOutputStream(OutputStream out, int threads) {
+        this(out, threads, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Initializes a parallel gzip stream on top of {@code out} using
+     * the specified number of threads and block size.
+     *
+     * @param out the stream to write compressed data to
+     * @param threads the number of compression threads
+     * @param blockSize the number of uncompressed bytes per gzip member
+     * @throws IllegalArgumentException if {@code out} is {@code null}
+     * @throws IllegalArgumentException if {@code threads < 1}
+     *         or {@code blockSize < 1}
+     */
+    public DRParallelGzipOutputStream(OutputStream out, int threads, int blockSize) {
+        if (out == null)
+            throw new IllegalArgumentException("argument is null");
+        if (threads < 1)
+            throw new IllegalArgumentException
+                ("number of threads must be positive: " + threads);
+        if (blockSize < 1)
+            throw new IllegalArgumentException
+                ("block size must be positive: " + blockSize);
+
+        this.out = out;
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+        this.maxPending = 2 * threads;
+        this.pending = new ArrayDeque<Future<byte[]>>();
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "DRParallelGzip");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[count++] = (byte) b;
+        if (count == blockSize) submit();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int k = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, k);
+            count += k;
+            off += k;
+            len -= k;
+            if (count == blockSize) submit();
+        }
+    }
+
+    /**
+     * Writes every member that has already been compressed and flushes
+     * the underlying stream. Data in the current, partially filled block
+     * stays buffered.
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!pending.isEmpty() && pending.peek().isDone())
+            drain();
+        out.flush();
+    }
+
+    /**
+     * Compresses any buffered data and writes all remaining members,
+     * without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (finished) return;
+        if (count > 0) submit();
+        while (!pending.isEmpty())
+            drain();
+        out.flush();
+        finished = true;
+        pool.shutdown();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        }
+        finally {
+            pool.shutdownNow();
+            out.close();
+        }
+    }
+
+    // hand the current block to a worker and start a new one
+    private void submit() throws IOException {
+        final byte[] data = block;
+        final int length = count;
+        pending.add(pool.submit(() -> compress(data, length)));
+        block = new byte[blockSize];
+        count = 0;
+        while (pending.size() >= maxPending)
+            drain();
+    }
+
+    // wait for the oldest block and write its member
+    private void drain() throws IOException {
+        Future<byte[]> f = pending.poll();
+        try {
+            out.write(f.get());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while compressing", e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException("could not compress block", e.getCause());
+        }
+    }
+
+    // deflate a block into a complete gzip member
+    private static byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 2 + 64);
+        GZIPOutputStream gzip = new GZIPOutputStream(bytes, 1 << 16);
+        gzip.write(data, 0, length);
+        gzip.finish();
+        return bytes.toByteArray();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished)
+            throw new IOException("stream already finished");
+    }
+
+    /**
+     * Compresses standard input to standard output.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        InputStream in = System.in;
+        DRParallelGzipOutputStream gzip = new DRParallelGzipOutputStream(System.out, threads);
+        byte[] buffer = new byte[1 << 16];
+        int n;
+        while ((n = in.read(buffer)) > 0)
+            gzip.write(buffer, 0, n);
+        gzip.finish();
+    }
+}
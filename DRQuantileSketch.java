@@ -0,0 +1,484 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRQuantileSketch.java
+ * Execution:    java DRQuantileSketch n
+ * Dependencies: DRStats.java
+ *               DRRandom.java
+ *               DROut.java
+ *
+ * Approximate quantiles of a stream in bounded memory.
+ *
+ * The sketch is the KLL sketch of Karnin, Lang and Liberty. Values go
+ * into a buffer at level 0; when a level fills up it is sorted, and
+ * every other value (starting at a random offset) moves up one level,
+ * where it stands for twice as many values as before. Capacities shrink
+ * geometrically towards the lower levels, so a sketch of n values keeps
+ * about 2.5k + log(n / k) values, and the rank of a quantile it returns is
+ * off by about 1.7 / k of n (k = 200 gives a 0.8% typical rank error).
+ * Sketches of the same or different streams merge into a sketch of the
+ * combined stream with the same accuracy.
+ *
+ * % java DRQuantileSketch 1000000
+ * n = 1000000, retained = 506, 4953 bytes
+ *    p     sketch      exact
+ *   0.5      0.476      0.479
+ *  0.99      3.086      3.195
+ * 0.999      4.332      4.767
+ *
+ ***************************************************************************/
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The {@code DRQuantileSketch} class is a mutable, mergeable summary of a
+ * stream of doubles that answers quantile and rank queries approximately,
+ * with a rank error proportional to {@code 1 / k} and memory proportional
+ * to {@code k}. It is not thread-safe: give each thread its own sketch
+ * and {@link #merge} them at the end. A sketch can be saved with
+ * {@link #toBytes()} and restored with {@link #fromBytes} to merge
+ * sketches from other processes.
+ * <p>
+ * {@code NaN} values are ignored. The minimum and maximum are exact.
+ */
+public final class DRQuantileSketch {
+
+    /** The default accuracy parameter. */
+    public static final int DEFAULT_K = 200;
+
+    // layout version of toBytes()
+    private static final byte VERSION = 1;
+
+    // ratio of the capacities of adjacent levels
+    private static final double C = 2.0 / 3.0;
+
+    private final int k;
+    private long n;                   // values added, not counting NaN
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double[][] levels = new double[1][8];  // level h holds values of weight 2^h
+    private int[] sizes = new int[1];
+    private int[] capacities;
+    private int retained;             // sum of sizes
+    private int maxRetained;          // sum of capacities
+
+    /**
+     * Initializes an empty sketch with the default accuracy.
+     */
+    public DRQuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Initializes an empty sketch whose rank error is about
+     * {@code 1.7 / k}.
+     *
+     * @param k the accuracy parameter
+     * @throws IllegalArgumentException unless {@code 8 <= k <= 65535}
+     */
+    public DRQuantileSketch(int k) {
+        if (k < 8 || k > 65535)
+            throw new IllegalArgumentException("k must be between 8 and 65535: " + k);
+        this.k = k;
+        updateCapacities();
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param x the value
+     */
+    public void add(double x) {
+        if (x != x) return;
+        if (x < min) min = x;
+        if (x > max) max = x;
+        n++;
+        append(0, x);
+        retained++;
+        if (retained >= maxRetained) compress();
+    }
+
+    /**
+     * Adds all values in the specified array.
+     *
+     * @param a the array
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public void addAll(double[] a) {
+        validateNotNull(a);
+        addAll(a, 0, a.length);
+    }
+
+    /**
+     * Adds the values in the specified subarray.
+     *
+     * @param a the array
+     * @param lo the left endpoint of the subarray (inclusive)
+     * @param hi the right endpoint of the subarray (exclusive)
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo <= hi) && (hi <= a.length)}
+     */
+    public void addAll(double[] a, int lo, int hi) {
+        validateNotNull(a);
+        if (lo < 0 || hi > a.length || lo > hi)
+            throw new IllegalArgumentException("subarray indices out of bounds: [" + lo + ", " + hi + ")");
+
+        // copy into level 0 in runs that fill the sketch, compressing after each
+        int i = lo;
+        while (i < hi) {
+            int run = Math.min(hi - i, Math.max(1, maxRetained - retained));
+            ensureCapacity(0, sizes[0] + run);
+            double[] level = levels[0];
+            int size = sizes[0];
+            for (int end = i + run; i < end; i++) {
+                double x = a[i];
+                if (x != x) continue;
+                if (x < min) min = x;
+                if (x > max) max = x;
+                level[size++] = x;
+            }
+            n += size - sizes[0];
+            retained += size - sizes[0];
+            sizes[0] = size;
+            if (retained >= maxRetained) compress();
+        }
+    }
+
+    /**
+     * Adds the values summarized by {@code that} to this sketch, as if
+     * they had been added here. {@code that} is not changed.
+     *
+     * @param that the other sketch
+     * @throws IllegalArgumentException if {@code that} is {@code null}
+     */
+    public void merge(DRQuantileSketch that) {
+        validateNotNull(that);
+        if (that == this)
+            throw new IllegalArgumentException("cannot merge a sketch with itself");
+        if (that.n == 0) return;
+
+        while (levels.length < that.levels.length)
+            grow();
+        for (int h = 0; h < that.levels.length; h++) {
+            int m = that.sizes[h];
+            ensureCapacity(h, sizes[h] + m);
+            System.arraycopy(that.levels[h], 0, levels[h], sizes[h], m);
+            sizes[h] += m;
+            retained += m;
+        }
+        n += that.n;
+        min = Math.min(min, that.min);
+        max = Math.max(max, that.max);
+        while (retained >= maxRetained)
+            compress();
+    }
+
+    /**
+     * Returns the number of values added, not counting {@code NaN}.
+     */
+    public long count() {
+        return n;
+    }
+
+    /**
+     * Returns true if no values have been added.
+     */
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Returns the number of values the sketch keeps.
+     */
+    public int retained() {
+        return retained;
+    }
+
+    /**
+     * Returns the minimum value; {@code Double.NaN} if none.
+     */
+    public double min() {
+        return n == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * Returns the maximum value; {@code Double.NaN} if none.
+     */
+    public double max() {
+        return n == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Returns an approximate p-quantile: a value whose rank is close to
+     * {@code p * count()}. The 0- and 1-quantiles are the exact minimum
+     * and maximum.
+     *
+     * @param  p the probability, between 0 and 1
+     * @return the approximate p-quantile; {@code Double.NaN} if empty
+     * @throws IllegalArgumentException unless {@code 0 <= p <= 1}
+     */
+    public double quantile(double p) {
+        return quantiles(p)[0];
+    }
+
+    /**
+     * Returns approximate quantiles for each of the specified
+     * probabilities, sorting the retained values only once.
+     *
+     * @param  p the probabilities, each between 0 and 1, in any order
+     * @return the approximate quantiles, in the order of {@code p}
+     * @throws IllegalArgumentException if {@code p} is {@code null}
+     * @throws IllegalArgumentException unless every {@code 0 <= p[i] <= 1}
+     */
+    public double[] quantiles(double... p) {
+        validateNotNull(p);
+        for (double x : p)
+            if (!(x >= 0.0 && x <= 1.0))
+                throw new IllegalArgumentException("probability must be between 0 and 1: " + x);
+        double[] q = new double[p.length];
+        if (n == 0) {
+            Arrays.fill(q, Double.NaN);
+            return q;
+        }
+
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        sortedView(values, weights);
+        for (int i = 0; i < p.length; i++) {
+            if      (p[i] == 0.0) q[i] = min;
+            else if (p[i] == 1.0) q[i] = max;
+            else {
+                // first value whose cumulative weight reaches p * n
+                double target = p[i] * n;
+                long cumulative = 0;
+                int j = 0;
+                while (j < values.length - 1 && (cumulative += weights[j]) < target)
+                    j++;
+                q[i] = values[j];
+            }
+        }
+        return q;
+    }
+
+    /**
+     * Returns the approximate fraction of the values that are less than
+     * or equal to {@code x}.
+     *
+     * @param  x the value
+     * @return the approximate normalized rank of {@code x};
+     *         {@code Double.NaN} if empty or {@code x} is {@code NaN}
+     */
+    public double rank(double x) {
+        if (n == 0 || x != x) return Double.NaN;
+        if (x >= max) return 1.0;
+        if (x < min)  return 0.0;
+        long weight = 0;
+        for (int h = 0; h < levels.length; h++) {
+            double[] level = levels[h];
+            long count = 0;
+            for (int i = 0; i < sizes[h]; i++)
+                if (level[i] <= x) count++;
+            weight += count << h;
+        }
+        return (double) weight / n;
+    }
+
+    /**
+     * Returns the state of this sketch as bytes, for {@link #fromBytes}
+     * in this or another process.
+     */
+    public byte[] toBytes() {
+        ByteBuffer buf = ByteBuffer.allocate(1 + 4 + 8 * 3 + 4 + 4 * levels.length + 8 * retained);
+        buf.put(VERSION);
+        buf.putInt(k);
+        buf.putLong(n);
+        buf.putDouble(min);
+        buf.putDouble(max);
+        buf.putInt(levels.length);
+        for (int h = 0; h < levels.length; h++) {
+            buf.putInt(sizes[h]);
+            for (int i = 0; i < sizes[h]; i++)
+                buf.putDouble(levels[h][i]);
+        }
+        return buf.array();
+    }
+
+    /**
+     * Returns a sketch restored from the output of {@link #toBytes()}.
+     *
+     * @param bytes the saved state
+     * @throws IllegalArgumentException if {@code bytes} is not a saved sketch
+     */
+    public static DRQuantileSketch fromBytes(byte[] bytes) {
+        validateNotNull(bytes);
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            if (buf.get() != VERSION)
+                throw new IllegalArgumentException("not a saved sketch");
+            DRQuantileSketch sketch = new DRQuantileSketch(buf.getInt());
+            sketch.n = buf.getLong();
+            sketch.min = buf.getDouble();
+            sketch.max = buf.getDouble();
+            int height = buf.getInt();
+            if (height < 1 || height > 64)
+                throw new IllegalArgumentException("not a saved sketch");
+            while (sketch.levels.length < height)
+                sketch.grow();
+            for (int h = 0; h < height; h++) {
+                int size = buf.getInt();
+                if (size < 0 || size > buf.remaining() / 8)
+                    throw new IllegalArgumentException("not a saved sketch");
+                sketch.ensureCapacity(h, size);
+                for (int i = 0; i < size; i++)
+                    sketch.levels[h][i] = buf.getDouble();
+                sketch.sizes[h] = size;
+                sketch.retained += size;
+            }
+            if (buf.hasRemaining())
+                throw new IllegalArgumentException("not a saved sketch");
+            return sketch;
+        }
+        catch (java.nio.BufferUnderflowException e) {
+            throw new IllegalArgumentException("not a saved sketch", e);
+        }
+    }
+
+    /**
+     * Returns a one-line description of the sketch.
+     */
+    @Override
+    public String toString() {
+        if (n == 0) return "n = 0";
+        double[] q = quantiles(0.5, 0.99, 0.999);
+        return String.format("n = %d, min = %.3f, p50 = %.3f, p99 = %.3f, p999 = %.3f, max = %.3f",
+                             n, min, q[0], q[1], q[2], max);
+    }
+
+    // compacts the lowest level that is at capacity into the level above
+    private void compress() {
+        for (int h = 0; h < levels.length; h++) {
+            if (sizes[h] >= capacities[h]) {
+                if (h + 1 == levels.length) grow();
+                compact(h);
+                return;
+            }
+        }
+    }
+
+    // sorts level h and promotes every other value, from a random offset;
+    // with an odd size the smallest value stays behind
+    private void compact(int h) {
+        double[] level = levels[h];
+        int size = sizes[h];
+        Arrays.sort(level, 0, size);
+        int start = size & 1;
+        int offset = ThreadLocalRandom.current().nextBoolean() ? 1 : 0;
+        int promoted = (size - start) / 2;
+        ensureCapacity(h + 1, sizes[h + 1] + promoted);
+        double[] up = levels[h + 1];
+        int top = sizes[h + 1];
+        for (int i = start + offset; i < size; i += 2)
+            up[top++] = level[i];
+        sizes[h + 1] = top;
+        sizes[h] = start;
+        retained -= size - start - promoted;
+    }
+
+    // adds a level on top and recomputes the capacities
+    private void grow() {
+        int height = levels.length + 1;
+        levels = Arrays.copyOf(levels, height);
+        levels[height - 1] = new double[8];
+        sizes = Arrays.copyOf(sizes, height);
+        updateCapacities();
+    }
+
+    // the top level holds k values, each level below it 2/3 as many
+    private void updateCapacities() {
+        int height = levels.length;
+        capacities = new int[height];
+        maxRetained = 0;
+        for (int h = 0; h < height; h++) {
+            capacities[h] = Math.max(2, (int) Math.ceil(k * Math.pow(C, height - h - 1)) + 1);
+            maxRetained += capacities[h];
+        }
+    }
+
+    private void append(int h, double x) {
+        ensureCapacity(h, sizes[h] + 1);
+        levels[h][sizes[h]++] = x;
+    }
+
+    private void ensureCapacity(int h, int capacity) {
+        if (levels[h].length < capacity)
+            levels[h] = Arrays.copyOf(levels[h], Math.max(capacity, 2 * levels[h].length));
+    }
+
+    // fills values with the retained values in sorted order, and weights
+    // with the number of values each one stands for, by sorting each
+    // level and merging it into the levels below
+    private void sortedView(double[] values, long[] weights) {
+        double[] v = new double[values.length];
+        long[] w = new long[weights.length];
+        int m = 0;
+        for (int h = 0; h < levels.length; h++) {
+            int size = sizes[h];
+            double[] level = Arrays.copyOf(levels[h], size);
+            Arrays.sort(level);
+            long weight = 1L << h;
+
+            // merge values[0..m) with level into v, then swap
+            int i = 0, j = 0, t = 0;
+            while (i < m || j < size) {
+                if (j == size || (i < m && values[i] <= level[j])) {
+                    v[t] = values[i];
+                    w[t++] = weights[i++];
+                }
+                else {
+                    v[t] = level[j++];
+                    w[t++] = weight;
+                }
+            }
+            System.arraycopy(v, 0, values, 0, t);
+            System.arraycopy(w, 0, weights, 0, t);
+            m = t;
+        }
+    }
+
+    private static void validateNotNull(Object x) {
+        if (x == null)
+            throw new IllegalArgumentException("argument is null");
+    }
+
+    /**
+     * Sketches n exponentially distributed values in two halves, merges
+     * the halves through their serialized form, and compares a few
+     * quantiles with the exact ones.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++)
+            a[i] = DRRandom.exp(1.0 / Math.log(2));
+
+        DRQuantileSketch left = new DRQuantileSketch();
+        DRQuantileSketch right = new DRQuantileSketch();
+        left.addAll(a, 0, n / 2);
+        right.addAll(a, n / 2, n);
+        byte[] bytes = right.toBytes();
+        left.merge(DRQuantileSketch.fromBytes(bytes));
+
+        DROut.printf("n = %d, retained = %d, %d bytes\n", left.count(), left.retained(), bytes.length);
+        DROut.printf("   p     sketch      exact\n");
+        double[] p = { 0.5, 0.99, 0.999 };
+        double[] sketch = left.quantiles(p);
+        double[] exact = DRStats.quantiles(a, p);
+        for (int i = 0; i < p.length; i++)
+            DROut.printf("%5s %10.3f %10.3f\n", p[i], sketch[i], exact[i]);
+    }
+}
@@ -0,0 +1,465 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRRangeStats.java
+ * Execution:    java DRRangeStats w < input.txt
+ * Dependencies: DRArrayIO.java
+ *               DROut.java
+ *
+ * Constant-time statistics of any subarray of a fixed array.
+ *
+ * The index is built once, in O(n) time and space, and then answers the
+ * sum, mean, variance, minimum and maximum of any subarray a[lo..hi) in
+ * constant time, where DRStats would scan the subarray every time.
+ *
+ * Sums and variances are not taken from prefix sums, whose differences
+ * cancel catastrophically when the data drift far from their mean.
+ * Instead, each block of 32 values keeps its compensated sum and its sum
+ * of squared deviations M2, and a disjoint sparse table over the blocks
+ * keeps the same for ranges of blocks: level k cuts the blocks into runs
+ * of 2^k, and entry (k, b) covers the blocks from b to the middle of its
+ * run. The whole blocks of a query are covered by two entries on either
+ * side of a middle, and the values in the partial blocks at its ends are
+ * added one by one: by Neumaier's summation for the sum, and for the
+ * variance by merging the two entries with the formula of Chan, Golub
+ * and LeVeque and adding the values by Welford's update. So every result
+ * is computed from the values of the subarray alone, as accurately as a
+ * sum over the subarray itself, and sums of integers are exact. Counts
+ * of NaN and infinities, kept only if the array has any, give the same
+ * results as DRStats for subarrays that contain them.
+ *
+ * Minima and maxima come from a sparse table over the same blocks: entry
+ * (j, b) is the minimum of blocks b to b + 2^j - 1, so the blocks spanned
+ * by a query are covered by two overlapping entries, and the partial
+ * blocks at its ends are scanned (at most 62 values, in order). Each
+ * table has about n / 32 log(n / 32) entries.
+ *
+ * % java DRRangeStats 3 < tinyDouble1D.txt
+ * [0, 3): sum =  6.000, mean =  2.000, stddev =  1.000, min =  1.000, max =  3.000
+ * [1, 4): sum =  8.000, mean =  2.667, stddev =  2.082, min =  1.000, max =  5.000
+ * [2, 5): sum = 11.000, mean =  3.667, stddev =  1.528, min =  2.000, max =  5.000
+ *
+ ***************************************************************************/
+
+/**
+ * The {@code DRRangeStats} class is an immutable index over an array
+ * that answers subarray statistics in constant time. It follows the
+ * conventions of {@link DRStats}: a subarray containing {@code NaN} has
+ * {@code NaN} statistics, and the minimum and maximum of an empty
+ * subarray are positive and negative infinity.
+ */
+public final class DRRangeStats {
+
+    // values per block of the tables
+    private static final int BLOCK_BITS = 5;
+
+    private final double[] a;
+    private final double[][] sums;     // sums[k][b], m2s[k][b]: moments of the blocks
+    private final double[][] m2s;      //   from b to the middle of its run of 2^k
+    private final int[] nans;          // prefix counts, or null if there are none
+    private final int[] posInf;
+    private final int[] negInf;
+    private final double[][] minTable; // minTable[j][b]: min of blocks b..b+2^j-1
+    private final double[][] maxTable;
+
+    /**
+     * Initializes an index over a copy of the specified array.
+     *
+     * @param a the array
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public DRRangeStats(double[] a) {
+        if (a == null)
+            throw new IllegalArgumentException("argument is null");
+        this.a = a.clone();
+        a = this.a;
+        int n = a.length;
+
+        boolean special = false;
+        for (int i = 0; i < n; i++)
+            special |= a[i] - a[i] != 0.0;
+        nans = special ? new int[n + 1] : null;
+        posInf = special ? new int[n + 1] : null;
+        negInf = special ? new int[n + 1] : null;
+        for (int i = 0; special && i < n; i++) {
+            double x = a[i];
+            nans[i + 1]   = nans[i]   + (x != x ? 1 : 0);
+            posInf[i + 1] = posInf[i] + (x == Double.POSITIVE_INFINITY ? 1 : 0);
+            negInf[i + 1] = negInf[i] + (x == Double.NEGATIVE_INFINITY ? 1 : 0);
+        }
+
+        // level 0 holds the moments of each block, by two passes over it;
+        // level k those of the blocks from each b towards the middle of its
+        // run, merged one block at a time outwards from the middle
+        int blocks = (n + (1 << BLOCK_BITS) - 1) >>> BLOCK_BITS;
+        int runs = blocks < 2 ? blocks : 33 - Integer.numberOfLeadingZeros(blocks - 1);
+        sums = new double[runs][blocks];
+        m2s = new double[runs][blocks];
+        for (int b = 0; b < blocks; b++) {
+            int lo = b << BLOCK_BITS;
+            int hi = Math.min(n, lo + (1 << BLOCK_BITS));
+            double sum = scanSum(lo, hi);
+            double m = sum / (hi - lo);
+            double m2 = 0.0;
+            for (int i = lo; i < hi; i++)
+                m2 += (a[i] - m) * (a[i] - m);
+            sums[0][b] = sum;
+            m2s[0][b] = m2;
+        }
+        double[] acc = new double[4];
+        for (int k = 1; k < runs; k++) {
+            int half = 1 << (k - 1);
+            for (int mid = half; mid < blocks; mid += 2 * half) {
+                acc[0] = acc[1] = acc[2] = acc[3] = 0.0;
+                for (int b = mid - 1; b >= mid - half; b--) {
+                    merge(acc, blockSize(b), sums[0][b], m2s[0][b]);
+                    sums[k][b] = acc[1] + acc[2];
+                    m2s[k][b] = acc[3];
+                }
+                acc[0] = acc[1] = acc[2] = acc[3] = 0.0;
+                for (int b = mid; b < Math.min(blocks, mid + half); b++) {
+                    merge(acc, blockSize(b), sums[0][b], m2s[0][b]);
+                    sums[k][b] = acc[1] + acc[2];
+                    m2s[k][b] = acc[3];
+                }
+            }
+        }
+
+        // level 0 holds the extremes of each block, level j pairs up level j-1
+        int levels = blocks == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(blocks);
+        minTable = new double[levels][];
+        maxTable = new double[levels][];
+        if (levels == 0) return;
+        minTable[0] = new double[blocks];
+        maxTable[0] = new double[blocks];
+        for (int b = 0; b < blocks; b++) {
+            int lo = b << BLOCK_BITS;
+            int hi = Math.min(n, lo + (1 << BLOCK_BITS));
+            minTable[0][b] = scanMin(lo, hi);
+            maxTable[0][b] = scanMax(lo, hi);
+        }
+        for (int j = 1; j < levels; j++) {
+            int half = 1 << (j - 1);
+            int m = blocks - (1 << j) + 1;
+            double[] minPrev = minTable[j - 1], maxPrev = maxTable[j - 1];
+            double[] minCur = new double[m], maxCur = new double[m];
+            for (int b = 0; b < m; b++) {
+                minCur[b] = Math.min(minPrev[b], minPrev[b + half]);
+                maxCur[b] = Math.max(maxPrev[b], maxPrev[b + half]);
+            }
+            minTable[j] = minCur;
+            maxTable[j] = maxCur;
+        }
+    }
+
+    /**
+     * Initializes an index over the specified array of integers.
+     *
+     * @param a the array
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public DRRangeStats(int[] a) {
+        this(toDouble(a));
+    }
+
+    /**
+     * Returns the number of values in the indexed array.
+     */
+    public int size() {
+        return a.length;
+    }
+
+    /**
+     * Returns the sum of the values in the subarray {@code a[lo..hi)}.
+     *
+     * @param  lo the left endpoint of the subarray (inclusive)
+     * @param  hi the right endpoint of the subarray (exclusive)
+     * @return the sum of the values in {@code a[lo..hi)}; 0 if empty
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo <= hi) && (hi <= size())}
+     */
+    public double sum(int lo, int hi) {
+        validateSubarrayIndices(lo, hi);
+        if (nans != null) {
+            if (nans[hi] > nans[lo]) return Double.NaN;
+            boolean pos = posInf[hi] > posInf[lo];
+            boolean neg = negInf[hi] > negInf[lo];
+            if (pos && neg) return Double.NaN;
+            if (pos)        return Double.POSITIVE_INFINITY;
+            if (neg)        return Double.NEGATIVE_INFINITY;
+        }
+        return finiteSum(lo, hi);
+    }
+
+    /**
+     * Returns the average of the values in the subarray {@code a[lo..hi)}.
+     *
+     * @param  lo the left endpoint of the subarray (inclusive)
+     * @param  hi the right endpoint of the subarray (exclusive)
+     * @return the average of the values in {@code a[lo..hi)};
+     *         {@code Double.NaN} if empty
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo <= hi) && (hi <= size())}
+     */
+    public double mean(int lo, int hi) {
+        validateSubarrayIndices(lo, hi);
+        if (lo == hi) return Double.NaN;
+        return sum(lo, hi) / (hi - lo);
+    }
+
+    /**
+     * Returns the sample variance of the values in the subarray
+     * {@code a[lo..hi)}.
+     *
+     * @param  lo the left endpoint of the subarray (inclusive)
+     * @param  hi the right endpoint of the subarray (exclusive)
+     * @return the sample variance of the values in {@code a[lo..hi)};
+     *         {@code Double.NaN} if fewer than 2
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo <= hi) && (hi <= size())}
+     */
+    public double var(int lo, int hi) {
+        validateSubarrayIndices(lo, hi);
+        int n = hi - lo;
+        if (n < 2) return Double.NaN;
+        return sumOfSquaredDeviations(lo, hi) / (n - 1);
+    }
+
+    /**
+     * Returns the population variance of the values in the subarray
+     * {@code a[lo..hi)}.
+     *
+     * @param  lo the left endpoint of the subarray (inclusive)
+     * @param  hi the right endpoint of the subarray (exclusive)
+     * @return the population variance of the values in {@code a[lo..hi)};
+     *         {@code Double.NaN} if empty
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo <= hi) && (hi <= size())}
+     */
+    public double varp(int lo, int hi) {
+        validateSubarrayIndices(lo, hi);
+        int n = hi - lo;
+        if (n == 0) return Double.NaN;
+        return sumOfSquaredDeviations(lo, hi) / n;
+    }
+
+    /**
+     * Returns the sample standard deviation of the values in the subarray
+     * {@code a[lo..hi)}.
+     *
+     * @param  lo the left endpoint of the subarray (inclusive)
+     * @param  hi the right endpoint of the subarray (exclusive)
+     * @return the sample standard deviation of the values in {@code a[lo..hi)};
+     *         {@code Double.NaN} if fewer than 2
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo <= hi) && (hi <= size())}
+     */
+    public double stddev(int lo, int hi) {
+        return Math.sqrt(var(lo, hi));
+    }
+
+    /**
+     * Returns the minimum value in the subarray {@code a[lo..hi)}.
+     *
+     * @param  lo the left endpoint of the subarray (inclusive)
+     * @param  hi the right endpoint of the subarray (exclusive)
+     * @return the minimum value in {@code a[lo..hi)};
+     *         {@code Double.POSITIVE_INFINITY} if empty
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo <= hi) && (hi <= size())}
+     */
+    public double min(int lo, int hi) {
+        validateSubarrayIndices(lo, hi);
+        if (nans != null && nans[hi] > nans[lo]) return Double.NaN;
+        if (lo == hi) return Double.POSITIVE_INFINITY;
+        int first = lo >>> BLOCK_BITS;
+        int last = (hi - 1) >>> BLOCK_BITS;
+        if (first == last) return scanMin(lo, hi);
+
+        double min = Math.min(scanMin(lo, (first + 1) << BLOCK_BITS), scanMin(last << BLOCK_BITS, hi));
+        if (last - first > 1) {
+            int j = 31 - Integer.numberOfLeadingZeros(last - first - 1);
+            min = Math.min(min, Math.min(minTable[j][first + 1], minTable[j][last - (1 << j)]));
+        }
+        return min;
+    }
+
+    /**
+     * Returns the maximum value in the subarray {@code a[lo..hi)}.
+     *
+     * @param  lo the left endpoint of the subarray (inclusive)
+     * @param  hi the right endpoint of the subarray (exclusive)
+     * @return the maximum value in {@code a[lo..hi)};
+     *         {@code Double.NEGATIVE_INFINITY} if empty
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo <= hi) && (hi <= size())}
+     */
+    public double max(int lo, int hi) {
+        validateSubarrayIndices(lo, hi);
+        if (nans != null && nans[hi] > nans[lo]) return Double.NaN;
+        if (lo == hi) return Double.NEGATIVE_INFINITY;
+        int first = lo >>> BLOCK_BITS;
+        int last = (hi - 1) >>> BLOCK_BITS;
+        if (first == last) return scanMax(lo, hi);
+
+        double max = Math.max(scanMax(lo, (first + 1) << BLOCK_BITS), scanMax(last << BLOCK_BITS, hi));
+        if (last - first > 1) {
+            int j = 31 - Integer.numberOfLeadingZeros(last - first - 1);
+            max = Math.max(max, Math.max(maxTable[j][first + 1], maxTable[j][last - (1 << j)]));
+        }
+        return max;
+    }
+
+    // sum of a[lo..hi), which must hold only finite values: the sums of the
+    // whole blocks from the table, then the values of the partial blocks,
+    // all added by Neumaier's summation
+    private double finiteSum(int lo, int hi) {
+        int first = lo >>> BLOCK_BITS;
+        int last = (hi - 1) >>> BLOCK_BITS;
+        if (last - first < 2) return scanSum(lo, hi);
+        int f = first + 1;
+        int l = last - 1;
+        int k = 32 - Integer.numberOfLeadingZeros(f ^ l);
+        double sum = sums[k][f], c = 0.0;
+        if (k > 0) {
+            double x = sums[k][l];
+            double t = sum + x;
+            c += Math.abs(sum) >= Math.abs(x) ? (sum - t) + x : (x - t) + sum;
+            sum = t;
+        }
+        for (int i = lo; i < f << BLOCK_BITS; i++) {
+            double t = sum + a[i];
+            c += Math.abs(sum) >= Math.abs(a[i]) ? (sum - t) + a[i] : (a[i] - t) + sum;
+            sum = t;
+        }
+        for (int i = (l + 1) << BLOCK_BITS; i < hi; i++) {
+            double t = sum + a[i];
+            c += Math.abs(sum) >= Math.abs(a[i]) ? (sum - t) + a[i] : (a[i] - t) + sum;
+            sum = t;
+        }
+        return sum + c;
+    }
+
+    // Neumaier sum of a[lo..hi)
+    private double scanSum(int lo, int hi) {
+        double sum = 0.0, c = 0.0;
+        for (int i = lo; i < hi; i++) {
+            double t = sum + a[i];
+            c += Math.abs(sum) >= Math.abs(a[i]) ? (sum - t) + a[i] : (a[i] - t) + sum;
+            sum = t;
+        }
+        return sum + c;
+    }
+
+    // sum of (a[i] - mean)^2 over a[lo..hi): the moments of the whole
+    // blocks from the table, then the values of the partial blocks one by one
+    private double sumOfSquaredDeviations(int lo, int hi) {
+        if (nans != null && nonFinite(lo, hi)) return Double.NaN;
+        int first = lo >>> BLOCK_BITS;
+        int last = (hi - 1) >>> BLOCK_BITS;
+        double n = 0.0, mean = 0.0, m2 = 0.0;
+        int left = hi, right = hi;       // values outside a[left..right) are added one by one
+        if (last - first > 1) {
+            int f = first + 1;
+            int l = last - 1;
+            left = f << BLOCK_BITS;
+            right = (l + 1) << BLOCK_BITS;
+            n = right - left;
+            int k = 32 - Integer.numberOfLeadingZeros(f ^ l);
+            if (k == 0) {
+                mean = sums[0][f] / n;
+                m2 = m2s[0][f];
+            }
+            else {
+                double nf = ((l >>> (k - 1) << (k - 1)) - f) << BLOCK_BITS;
+                double meanf = sums[k][f] / nf;
+                double delta = sums[k][l] / (n - nf) - meanf;
+                mean = meanf + delta * (n - nf) / n;
+                m2 = m2s[k][f] + m2s[k][l] + delta * delta * nf / n * (n - nf);
+            }
+        }
+        for (int i = lo; i < left; i++) {
+            double delta = a[i] - mean;
+            mean += delta / ++n;
+            m2 += delta * (a[i] - mean);
+        }
+        for (int i = right; i < hi; i++) {
+            double delta = a[i] - mean;
+            mean += delta / ++n;
+            m2 += delta * (a[i] - mean);
+        }
+        return m2;
+    }
+
+    // merges nb values of sum sb and sum of squared deviations m2b into
+    // acc = { n, sum, compensation of the sum, m2 }
+    private static void merge(double[] acc, double nb, double sb, double m2b) {
+        double na = acc[0];
+        double sum = acc[1];
+        if (na > 0.0) {
+            double delta = sb / nb - (sum + acc[2]) / na;
+            acc[3] += delta * delta * na / (na + nb) * nb;
+        }
+        double t = sum + sb;
+        acc[2] += Math.abs(sum) >= Math.abs(sb) ? (sum - t) + sb : (sb - t) + sum;
+        acc[1] = t;
+        acc[0] = na + nb;
+        acc[3] += m2b;
+    }
+
+    // number of values in block b
+    private int blockSize(int b) {
+        return Math.min(a.length, (b + 1) << BLOCK_BITS) - (b << BLOCK_BITS);
+    }
+
+    private boolean nonFinite(int lo, int hi) {
+        return nans[hi] > nans[lo] || posInf[hi] > posInf[lo] || negInf[hi] > negInf[lo];
+    }
+
+    // NaN is skipped; queries check for it first
+    private double scanMin(int lo, int hi) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = lo; i < hi; i++)
+            if (a[i] < min) min = a[i];
+        return min;
+    }
+
+    private double scanMax(int lo, int hi) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = lo; i < hi; i++)
+            if (a[i] > max) max = a[i];
+        return max;
+    }
+
+    private void validateSubarrayIndices(int lo, int hi) {
+        if (lo < 0 || hi > a.length || lo > hi)
+            throw new IllegalArgumentException("subarray indices out of bounds: [" + lo + ", " + hi + ")");
+    }
+
+    private static double[] toDouble(int[] a) {
+        if (a == null)
+            throw new IllegalArgumentException("argument is null");
+        double[] b = new double[a.length];
+        for (int i = 0; i < a.length; i++)
+            b[i] = a[i];
+        return b;
+    }
+
+    /**
+     * Reads an array of doubles from standard input and prints the
+     * statistics of every subarray of length w.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int w = Integer.parseInt(args[0]);
+        double[] a = DRArrayIO.readDouble1D();
+        DRRangeStats stats = new DRRangeStats(a);
+        for (int lo = 0; lo + w <= a.length; lo++) {
+            int hi = lo + w;
+            DROut.printf("[%d, %d): sum = %6.3f, mean = %6.3f, stddev = %6.3f, min = %6.3f, max = %6.3f\n",
+                         lo, hi, stats.sum(lo, hi), stats.mean(lo, hi), stats.stddev(lo, hi),
+                         stats.min(lo, hi), stats.max(lo, hi));
+        }
+    }
+}
@@ -0,0 +1,378 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRRollingWindow.java
+ * Execution:    java DRRollingWindow w < input.txt
+ * Dependencies: DRArrayIO.java
+ *               DROut.java
+ *
+ * Statistics of the most recent values of a stream.
+ *
+ * A window holds either the last w values added, or the values added
+ * within a span of time of the latest one. Each value that enters or
+ * leaves the window updates a compensated sum and Welford's running mean
+ * and sum of squared deviations, which are recomputed exactly each time
+ * a window's worth of values has left so that rounding errors do not pile
+ * up. The minimum and maximum are at the front of monotonic deques of the
+ * values that can still become the minimum or maximum. Adding a value
+ * takes constant amortized time and every query constant time.
+ *
+ * % java DRRollingWindow 3 < tinyDouble1D.txt
+ *    3.000: n = 1, mean = 3.000, min = 3.000, max = 3.000
+ *    1.000: n = 2, mean = 2.000, min = 1.000, max = 3.000
+ *    2.000: n = 3, mean = 2.000, min = 1.000, max = 3.000
+ *    5.000: n = 3, mean = 2.667, min = 1.000, max = 5.000
+ *    4.000: n = 3, mean = 3.667, min = 2.000, max = 5.000
+ *
+ ***************************************************************************/
+
+/**
+ * The {@code DRRollingWindow} class keeps the count, sum, mean, variance,
+ * minimum and maximum of a sliding window over a stream of doubles. It is
+ * the incremental form of the {@code rolling} methods of {@link DRStats},
+ * and follows the same conventions: a window containing {@code NaN} has
+ * {@code NaN} statistics. It is not thread-safe.
+ */
+public final class DRRollingWindow {
+
+    private final int capacity;    // count window size, or 0 for a time window
+    private final double span;     // time window length, or 0 for a count window
+
+    // the window, oldest first, in a ring buffer of power-of-two length
+    private double[] values = new double[16];
+    private double[] times = new double[16];
+    private int head;
+    private int n;
+    private long next;             // sequence number of the next value
+    private double latest = Double.NEGATIVE_INFINITY;
+
+    // sequence numbers of the candidate minima and maxima
+    private final Deque minima = new Deque();
+    private final Deque maxima = new Deque();
+
+    private int nans, posInf, negInf;
+    private int k;                 // finite values in the window
+    private double sum, c;         // Neumaier sum of the finite values
+    private double mean, m2;
+    private int removed;           // finite values removed since the last refresh
+
+    private DRRollingWindow(int capacity, double span) {
+        this.capacity = capacity;
+        this.span = span;
+    }
+
+    /**
+     * Returns an empty window of the last {@code w} values.
+     *
+     * @param  w the window size
+     * @return the window
+     * @throws IllegalArgumentException unless {@code w >= 1}
+     */
+    public static DRRollingWindow ofSize(int w) {
+        if (w < 1)
+            throw new IllegalArgumentException("window size must be positive: " + w);
+        return new DRRollingWindow(w, 0.0);
+    }
+
+    /**
+     * Returns an empty window of the values added at times within
+     * {@code span} of the latest one, that is at times {@code > t - span}
+     * for latest time {@code t}.
+     *
+     * @param  span the length of the window
+     * @return the window
+     * @throws IllegalArgumentException unless {@code span} is positive and finite
+     */
+    public static DRRollingWindow ofSpan(double span) {
+        if (!(span > 0.0 && span < Double.POSITIVE_INFINITY))
+            throw new IllegalArgumentException("span must be positive: " + span);
+        return new DRRollingWindow(0, span);
+    }
+
+    /**
+     * Adds a value to a count window, dropping the oldest value if the
+     * window is full.
+     *
+     * @param x the value
+     * @throws IllegalStateException if this is a time window
+     */
+    public void add(double x) {
+        if (capacity == 0)
+            throw new IllegalStateException("a time window needs the time of each value");
+        if (n == capacity) removeOldest();
+        append(x, 0.0);
+    }
+
+    /**
+     * Adds a value observed at time {@code t}, dropping the values that
+     * are now outside the window. In a count window the time is ignored.
+     *
+     * @param t the time
+     * @param x the value
+     * @throws IllegalArgumentException if {@code t} is not finite or is
+     *         before the time of a value already added
+     */
+    public void add(double t, double x) {
+        if (capacity > 0) {
+            add(x);
+            return;
+        }
+        advanceTo(t);
+        append(x, t);
+    }
+
+    /**
+     * Adds the values in the specified array to a count window.
+     *
+     * @param a the array
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalStateException if this is a time window
+     */
+    public void addAll(double[] a) {
+        if (a == null)
+            throw new IllegalArgumentException("argument is null");
+        for (int i = 0; i < a.length; i++)
+            add(a[i]);
+    }
+
+    /**
+     * Moves a time window forward to time {@code t} without adding a
+     * value, dropping the values at times {@code <= t - span}.
+     *
+     * @param t the time
+     * @throws IllegalArgumentException if {@code t} is not finite or is
+     *         before the time of a value already added
+     * @throws IllegalStateException if this is a count window
+     */
+    public void advanceTo(double t) {
+        if (capacity > 0)
+            throw new IllegalStateException("a count window has no times");
+        if (t - t != 0.0 || t < latest)
+            throw new IllegalArgumentException("times must be finite and nondecreasing: " + t);
+        latest = t;
+        while (n > 0 && times[head] <= t - span)
+            removeOldest();
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        head = n = 0;
+        minima.clear();
+        maxima.clear();
+        nans = posInf = negInf = k = removed = 0;
+        sum = c = mean = m2 = 0.0;
+        latest = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Returns the number of values in the window.
+     */
+    public int count() {
+        return n;
+    }
+
+    /**
+     * Returns the sum of the values in the window; 0 if none.
+     */
+    public double sum() {
+        if (nans > 0 || (posInf > 0 && negInf > 0)) return Double.NaN;
+        if (posInf > 0) return Double.POSITIVE_INFINITY;
+        if (negInf > 0) return Double.NEGATIVE_INFINITY;
+        return sum + c;
+    }
+
+    /**
+     * Returns the average of the values in the window; {@code Double.NaN}
+     * if none.
+     */
+    public double mean() {
+        if (n == 0) return Double.NaN;
+        return sum() / n;
+    }
+
+    /**
+     * Returns the sample variance of the values in the window;
+     * {@code Double.NaN} if fewer than 2.
+     */
+    public double var() {
+        if (n < 2 || k < n) return Double.NaN;
+        return m2 / (n - 1);
+    }
+
+    /**
+     * Returns the sample standard deviation of the values in the window.
+     */
+    public double stddev() {
+        return Math.sqrt(var());
+    }
+
+    /**
+     * Returns the minimum of the values in the window;
+     * {@code Double.POSITIVE_INFINITY} if none.
+     */
+    public double min() {
+        if (nans > 0) return Double.NaN;
+        if (n == 0) return Double.POSITIVE_INFINITY;
+        return valueOf(minima.first());
+    }
+
+    /**
+     * Returns the maximum of the values in the window;
+     * {@code Double.NEGATIVE_INFINITY} if none.
+     */
+    public double max() {
+        if (nans > 0) return Double.NaN;
+        if (n == 0) return Double.NEGATIVE_INFINITY;
+        return valueOf(maxima.first());
+    }
+
+    /**
+     * Returns a one-line description of the window.
+     */
+    @Override
+    public String toString() {
+        return String.format("n = %d, mean = %.3f, min = %.3f, max = %.3f", n, mean(), min(), max());
+    }
+
+    private void append(double x, double t) {
+        if (n == values.length) grow();
+        int i = (head + n) & (values.length - 1);
+        values[i] = x;
+        times[i] = t;
+        n++;
+        long seq = next++;
+
+        if (x - x == 0.0) {
+            k++;
+            addToSum(x);
+            double delta = x - mean;
+            mean += delta / k;
+            m2 += delta * (x - mean);
+        }
+        else if (x != x) nans++;
+        else if (x > 0)  posInf++;
+        else             negInf++;
+
+        if (x == x) {
+            while (!minima.isEmpty() && valueOf(minima.last()) >= x)
+                minima.removeLast();
+            minima.addLast(seq);
+            while (!maxima.isEmpty() && valueOf(maxima.last()) <= x)
+                maxima.removeLast();
+            maxima.addLast(seq);
+        }
+    }
+
+    private void removeOldest() {
+        double y = values[head];
+        long seq = next - n;
+        head = (head + 1) & (values.length - 1);
+        n--;
+        if (!minima.isEmpty() && minima.first() == seq) minima.removeFirst();
+        if (!maxima.isEmpty() && maxima.first() == seq) maxima.removeFirst();
+
+        if      (y != y)     nans--;
+        else if (y - y != 0) {
+            if (y > 0) posInf--;
+            else       negInf--;
+        }
+        else if (--k == 0) {
+            sum = c = mean = m2 = 0.0;
+            removed = 0;
+        }
+        else {
+            addToSum(-y);
+            double delta = y - mean;
+            mean -= delta / k;
+            m2 = Math.max(0.0, m2 - delta * (y - mean));
+            if (++removed >= n && removed >= 16) refresh();
+        }
+    }
+
+    // recomputes the sum, mean and m2 of the finite values in the window
+    private void refresh() {
+        int mask = values.length - 1;
+        sum = c = 0.0;
+        for (int j = 0; j < n; j++) {
+            double y = values[(head + j) & mask];
+            if (y - y == 0.0) addToSum(y);
+        }
+        mean = (sum + c) / k;
+        m2 = 0.0;
+        for (int j = 0; j < n; j++) {
+            double y = values[(head + j) & mask];
+            if (y - y == 0.0) m2 += (y - mean) * (y - mean);
+        }
+        removed = 0;
+    }
+
+    // Neumaier's compensated summation step
+    private void addToSum(double x) {
+        double t = sum + x;
+        if (Math.abs(sum) >= Math.abs(x)) c += (sum - t) + x;
+        else                              c += (x - t) + sum;
+        sum = t;
+    }
+
+    // value with sequence number seq, which must be in the window
+    private double valueOf(long seq) {
+        int offset = (int) (seq - (next - n));
+        return values[(head + offset) & (values.length - 1)];
+    }
+
+    private void grow() {
+        double[] v = new double[2 * values.length];
+        double[] t = new double[2 * values.length];
+        for (int j = 0; j < n; j++) {
+            v[j] = values[(head + j) & (values.length - 1)];
+            t[j] = times[(head + j) & (values.length - 1)];
+        }
+        values = v;
+        times = t;
+        head = 0;
+    }
+
+    // a double-ended queue of sequence numbers in a ring buffer
+    private static final class Deque {
+        private long[] a = new long[16];
+        private int head;
+        private int size;
+
+        boolean isEmpty()  { return size == 0; }
+        long first()       { return a[head]; }
+        long last()        { return a[(head + size - 1) & (a.length - 1)]; }
+        void removeFirst() { head = (head + 1) & (a.length - 1); size--; }
+        void removeLast()  { size--; }
+        void clear()       { head = size = 0; }
+
+        void addLast(long x) {
+            if (size == a.length) {
+                long[] b = new long[2 * a.length];
+                for (int j = 0; j < size; j++)
+                    b[j] = a[(head + j) & (a.length - 1)];
+                a = b;
+                head = 0;
+            }
+            a[(head + size) & (a.length - 1)] = x;
+            size++;
+        }
+    }
+
+    /**
+     * Reads an array of doubles from standard input and prints the
+     * statistics of a window of the last w values after each one.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int w = Integer.parseInt(args[0]);
+        double[] a = DRArrayIO.readDouble1D();
+        DRRollingWindow window = DRRollingWindow.ofSize(w);
+        for (int i = 0; i < a.length; i++) {
+            window.add(a[i]);
+            DROut.printf("%8.3f: %s\n", a[i], window);
+        }
+    }
+}
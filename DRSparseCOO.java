@@ -0,0 +1,169 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRSparseCOO.java
+ * Execution:    java DRSparseCOO
+ * Dependencies: DRSparseCSR.java
+ *               DRArrayIO.java
+ *
+ * A sparse matrix in coordinate (COO) format: three parallel arrays
+ * of row indices, column indices and values, in any order.
+ *
+ * COO is the format for building a sparse matrix one entry at a time;
+ * convert it with toCSR() to compute with it.
+ *
+ ***************************************************************************/
+
+import java.util.Arrays;
+
+/**
+ * The {@code DRSparseCOO} class is a growable list of (row, column, value)
+ * entries of an m-by-n sparse matrix. Entries may be added in any order
+ * and the same position may be added more than once; duplicates are
+ * summed when the matrix is converted to CSR.
+ */
+public final class DRSparseCOO {
+
+    private final int m;       // number of rows
+    private final int n;       // number of columns
+    private int nnz;           // number of entries
+    private int[] rowIndex;
+    private int[] colIndex;
+    private double[] values;
+
+    /**
+     * Initializes an empty m-by-n sparse matrix.
+     *
+     * @param m the number of rows
+     * @param n the number of columns
+     * @throws IllegalArgumentException if {@code m} or {@code n} is negative
+     */
+    public DRSparseCOO(int m, int n) {
+        this(m, n, 16);
+    }
+
+    /**
+     * Initializes an empty m-by-n sparse matrix with room for
+     * {@code capacity} entries.
+     *
+     * @param m the number of rows
+     * @param n the number of columns
+     * @param capacity the expected number of entries
+     * @throws IllegalArgumentException if any argument is negative
+     */
+    public DRSparseCOO(int m, int n, int capacity) {
+        if (m < 0 || n < 0)
+            throw new IllegalArgumentException("negative dimension: " + m + "-by-" + n);
+        if (capacity < 0)
+            throw new IllegalArgumentException("negative capacity: " + capacity);
+        this.m = m;
+        this.n = n;
+        this.rowIndex = new int[capacity];
+        this.colIndex = new int[capacity];
+        this.values = new double[capacity];
+    }
+
+    /**
+     * Returns the number of rows.
+     */
+    public int rows() {
+        return m;
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int cols() {
+        return n;
+    }
+
+    /**
+     * Returns the number of entries added so far, duplicates included.
+     */
+    public int nnz() {
+        return nnz;
+    }
+
+    /**
+     * Adds {@code x} to the element in row {@code i} and column {@code j}.
+     *
+     * @throws IllegalArgumentException if {@code (i, j)} is out of bounds
+     */
+    public void add(int i, int j, double x) {
+        if (i < 0 || i >= m)
+            throw new IllegalArgumentException("row index out of bounds: " + i);
+        if (j < 0 || j >= n)
+            throw new IllegalArgumentException("column index out of bounds: " + j);
+        if (nnz == values.length) resize(Math.max(16, 2 * nnz));
+        rowIndex[nnz] = i;
+        colIndex[nnz] = j;
+        values[nnz] = x;
+        nnz++;
+    }
+
+    // resize the parallel arrays
+    private void resize(int capacity) {
+        rowIndex = Arrays.copyOf(rowIndex, capacity);
+        colIndex = Arrays.copyOf(colIndex, capacity);
+        values   = Arrays.copyOf(values, capacity);
+    }
+
+    /**
+     * Returns this matrix in compressed sparse row format, with the
+     * entries of each row sorted by column and duplicates summed.
+     * Runs in time linear in {@code m} plus {@code nnz log nnz}.
+     */
+    public DRSparseCSR toCSR() {
+        // bucket the entries by row
+        int[] start = new int[m + 1];
+        for (int k = 0; k < nnz; k++)
+            start[rowIndex[k] + 1]++;
+        for (int i = 0; i < m; i++)
+            start[i + 1] += start[i];
+
+        // column in the high half, entry number in the low half
+        int[] next = Arrays.copyOf(start, m);
+        long[] keys = new long[nnz];
+        for (int k = 0; k < nnz; k++)
+            keys[next[rowIndex[k]]++] = ((long) colIndex[k] << 32) | k;
+
+        // sort each row by column and merge duplicates
+        int[] rowPtr = new int[m + 1];
+        int[] cols = new int[nnz];
+        double[] vals = new double[nnz];
+        int q = 0;
+        for (int i = 0; i < m; i++) {
+            Arrays.sort(keys, start[i], start[i + 1]);
+            rowPtr[i] = q;
+            for (int p = start[i]; p < start[i + 1]; p++) {
+                int j = (int) (keys[p] >>> 32);
+                double x = values[(int) keys[p]];
+                if (q > rowPtr[i] && cols[q - 1] == j) {
+                    vals[q - 1] += x;
+                }
+                else {
+                    cols[q] = j;
+                    vals[q] = x;
+                    q++;
+                }
+            }
+        }
+        rowPtr[m] = q;
+        return new DRSparseCSR(m, n, rowPtr, Arrays.copyOf(cols, q), Arrays.copyOf(vals, q));
+    }
+
+    /**
+     * Builds a small matrix out of order, with a duplicate, and prints
+     * it in CSR form.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        DRSparseCOO a = new DRSparseCOO(3, 4);
+        a.add(2, 3, 1.5);
+        a.add(0, 1, 2.0);
+        a.add(2, 0, -1.0);
+        a.add(0, 1, 0.25);
+        DRArrayIO.print(a.toCSR());
+    }
+}
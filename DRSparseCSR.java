@@ -0,0 +1,247 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac DRSparseCSR.java
+ * Execution:    java DRSparseCSR < tinySparse.txt
+ * Dependencies: DRSparseCOO.java
+ *               DRDoubleMatrix.java
+ *               DRArrayIO.java
+ *               DROut.java
+ *
+ * A sparse matrix in compressed sparse row (CSR) format.
+ *
+ * The nonzeros of row i are values[rowPtr[i] .. rowPtr[i+1]), in
+ * increasing column order, and their columns are the matching entries
+ * of colIndex. Memory and the cost of a matrix-vector product are
+ * proportional to the number of nonzeros, not to m*n.
+ *
+ * % more tinySparse.txt
+ * 3 4 3
+ * 0 1 2.25
+ * 2 0 -1.0
+ * 2 3 1.5
+ *
+ ***************************************************************************/
+
+import java.util.Arrays;
+
+/**
+ * The {@code DRSparseCSR} class represents an immutable-shape sparse
+ * matrix of doubles in compressed sparse row format. Build one with
+ * {@link DRSparseCOO}, from a dense array with {@link #fromDense}, or
+ * read one with {@code DRArrayIO.readSparse()}.
+ */
+public final class DRSparseCSR {
+
+    private final int m;             // number of rows
+    private final int n;             // number of columns
+    private final int[] rowPtr;      // row i is [rowPtr[i], rowPtr[i+1])
+    private final int[] colIndex;    // column of each nonzero
+    private final double[] values;   // value of each nonzero
+
+    // the arrays are taken as they are; callers keep them consistent
+    DRSparseCSR(int m, int n, int[] rowPtr, int[] colIndex, double[] values) {
+        this.m = m;
+        this.n = n;
+        this.rowPtr = rowPtr;
+        this.colIndex = colIndex;
+        this.values = values;
+    }
+
+    /**
+     * Returns the CSR form of the specified 2D array, keeping its
+     * nonzero elements.
+     *
+     * @param a the 2D array; every row must have {@code a[0].length} entries
+     * @throws IllegalArgumentException if {@code a} is {@code null} or ragged
+     */
+    public static DRSparseCSR fromDense(double[][] a) {
+        if (a == null)
+            throw new IllegalArgumentException("argument is null");
+        int m = a.length;
+        int n = m == 0 ? 0 : a[0].length;
+        int[] rowPtr = new int[m + 1];
+        for (int i = 0; i < m; i++) {
+            if (a[i].length != n)
+                throw new IllegalArgumentException("row " + i + " has length "
+                                                   + a[i].length + ", not " + n);
+            int count = 0;
+            for (int j = 0; j < n; j++)
+                if (a[i][j] != 0.0) count++;
+            rowPtr[i + 1] = rowPtr[i] + count;
+        }
+        int[] cols = new int[rowPtr[m]];
+        double[] vals = new double[rowPtr[m]];
+        for (int i = 0, q = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                if (a[i][j] != 0.0) {
+                    cols[q] = j;
+                    vals[q] = a[i][j];
+                    q++;
+                }
+            }
+        }
+        return new DRSparseCSR(m, n, rowPtr, cols, vals);
+    }
+
+    /**
+     * Returns the CSR form of the specified dense matrix, keeping its
+     * nonzero elements.
+     *
+     * @param a the dense matrix
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static DRSparseCSR fromDense(DRDoubleMatrix a) {
+        if (a == null)
+            throw new IllegalArgumentException("argument is null");
+        int m = a.rows();
+        int n = a.cols();
+        double[] data = a.data();
+        int count = 0;
+        for (int k = 0; k < data.length; k++)
+            if (data[k] != 0.0) count++;
+        int[] rowPtr = new int[m + 1];
+        int[] cols = new int[count];
+        double[] vals = new double[count];
+        for (int i = 0, k = 0, q = 0; i < m; i++) {
+            for (int j = 0; j < n; j++, k++) {
+                if (data[k] != 0.0) {
+                    cols[q] = j;
+                    vals[q] = data[k];
+                    q++;
+                }
+            }
+            rowPtr[i + 1] = q;
+        }
+        return new DRSparseCSR(m, n, rowPtr, cols, vals);
+    }
+
+    /**
+     * Returns the number of rows.
+     */
+    public int rows() {
+        return m;
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int cols() {
+        return n;
+    }
+
+    /**
+     * Returns the number of stored elements.
+     */
+    public int nnz() {
+        return rowPtr[m];
+    }
+
+    /**
+     * Returns the row pointers; row {@code i} is stored at
+     * {@code [rowPtr[i], rowPtr[i+1])}. Do not modify.
+     */
+    public int[] rowPtr() {
+        return rowPtr;
+    }
+
+    /**
+     * Returns the column index of each stored element. Do not modify.
+     */
+    public int[] colIndex() {
+        return colIndex;
+    }
+
+    /**
+     * Returns the value of each stored element. Changing a value changes
+     * the matrix.
+     */
+    public double[] values() {
+        return values;
+    }
+
+    /**
+     * Returns the element in row {@code i} and column {@code j}, by
+     * binary search within the row.
+     */
+    public double get(int i, int j) {
+        if (i < 0 || i >= m)
+            throw new IllegalArgumentException("row index out of bounds: " + i);
+        if (j < 0 || j >= n)
+            throw new IllegalArgumentException("column index out of bounds: " + j);
+        int k = Arrays.binarySearch(colIndex, rowPtr[i], rowPtr[i + 1], j);
+        return k >= 0 ? values[k] : 0.0;
+    }
+
+    /**
+     * Returns the matrix-vector product of this matrix and {@code x}.
+     *
+     * @param x the vector, of length {@code cols()}
+     * @return the vector {@code Ax}, of length {@code rows()}
+     * @throws IllegalArgumentException if {@code x} has the wrong length
+     */
+    public double[] times(double[] x) {
+        double[] y = new double[m];
+        times(x, y);
+        return y;
+    }
+
+    /**
+     * Computes the matrix-vector product of this matrix and {@code x}
+     * into {@code y}, without allocating.
+     *
+     * @param x the vector, of length {@code cols()}
+     * @param y receives {@code Ax}; of length {@code rows()}
+     * @throws IllegalArgumentException if {@code x} or {@code y} has
+     *         the wrong length
+     */
+    public void times(double[] x, double[] y) {
+        if (x == null || y == null)
+            throw new IllegalArgumentException("argument is null");
+        if (x.length != n || y.length != m)
+            throw new IllegalArgumentException("dimensions disagree");
+        for (int i = 0; i < m; i++) {
+            double sum = 0.0;
+            for (int k = rowPtr[i], end = rowPtr[i + 1]; k < end; k++)
+                sum += values[k] * x[colIndex[k]];
+            y[i] = sum;
+        }
+    }
+
+    /**
+     * Returns this matrix as a dense 2D array.
+     */
+    public double[][] toDense() {
+        double[][] a = new double[m][n];
+        for (int i = 0; i < m; i++)
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++)
+                a[i][colIndex[k]] = values[k];
+        return a;
+    }
+
+    /**
+     * Returns this matrix as a dense contiguous matrix.
+     */
+    public DRDoubleMatrix toMatrix() {
+        DRDoubleMatrix a = new DRDoubleMatrix(m, n);
+        double[] data = a.data();
+        for (int i = 0; i < m; i++)
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++)
+                data[i * n + colIndex[k]] = values[k];
+        return a;
+    }
+
+    /**
+     * Reads a sparse matrix from standard input, prints it, and
+     * multiplies it by the all-ones vector.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        DRSparseCSR a = DRArrayIO.readSparse();
+        DRArrayIO.print(a);
+        double[] x = new double[a.cols()];
+        Arrays.fill(x, 1.0);
+        DRArrayIO.print(a.times(x));
+    }
+}
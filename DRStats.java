@@ -5,11 +5,15 @@
  * Execution:   java DRStats < input.txt
  * Dependencies: DROut.java
  *               DRDraw.java
+ *               DRDoubleMatrix.java
+ *               DRIntMatrix.java
+ *               DRBigDoubleArray.java
+ *               DRAccumulator.java
  *
  * Library of statistical functions.
  *
  * The test client reads an array of real numbers from standard
- * input, and computes the mininum, mean, maxinum, and
+ * input, and computes the mininum, mean, median, maxinum, and
  * standard deviation.
  *
  * The functions all throw a java.lang.IllegalArgumentException
@@ -25,6 +29,7 @@
  * java DRStats < tinyDouble1D.txt
  *         min      1.000
  *        mean      3.000
+ *      median      3.000
  *         max      5.000
  *      stddev      1.581
  *         var      2.500
@@ -33,6 +38,11 @@
  *
  *****************************************************************************/
 
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.RecursiveTask;
+
 /*
  * The {@code DRStats} class provides statistic methods for computig
  * statistic such as min, max, mean, sample standard deviation, and
@@ -40,6 +50,20 @@
  */
 public final class DRStats {
 
+    // SIMD implementations of the basic reductions, or null for scalar loops
+    private static final Kernels KERNELS = loadKernels();
+
+    // values added left to right by pairwise summation before splitting
+    private static final int PAIRWISE_BLOCK = 128;
+
+    // elements summarized per leaf task by parallelSummary()
+    private static final int PARALLEL_BLOCK = 1 << 14;
+
+    // statistics computed by rollingMoments()
+    private static final int ROLLING_SUM  = 0;
+    private static final int ROLLING_MEAN = 1;
+    private static final int ROLLING_VAR  = 2;
+
     // dont' instantiate
     private DRStats() { }
 
@@ -48,6 +72,7 @@ public final class DRStats {
      */
     public static double max(double[] a) {
         validateNotNull(a);
+        if (KERNELS != null) return KERNELS.max(a, 0, a.length);
 
         double max = Double.NEGATIVE_INFINITY;
 
@@ -72,6 +97,7 @@ public final class DRStats {
     public static double max(double[] a, int lo, int hi) {
         validateNotNull(a);
         validateSubarrayIndices(lo, hi, a.length);
+        if (KERNELS != null) return KERNELS.max(a, lo, hi);
 
         double max = Double.NEGATIVE_INFINITY;
         for (int i = lo; i < hi; i++) {
@@ -90,6 +116,7 @@ public final class DRStats {
      */
     public static int max(int[] a ) {
         validateNotNull(a);
+        if (KERNELS != null) return KERNELS.max(a, 0, a.length);
 
         int max = Integer.MIN_VALUE;
         for (int i = 0; i < a.length; i++)
@@ -107,6 +134,7 @@ public final class DRStats {
      */
     public static double min(double[] a) {
         validateNotNull(a);
+        if (KERNELS != null) return KERNELS.min(a, 0, a.length);
 
         double min = Double.POSITIVE_INFINITY;
         for (int i = 0; i < a.length; i++) {
@@ -131,6 +159,7 @@ public final class DRStats {
     public static double min(double[] a, int lo, int hi) {
         validateNotNull(a);
         validateSubarrayIndices(lo, hi, a.length);
+        if (KERNELS != null) return KERNELS.min(a, lo, hi);
 
         double min = Double.POSITIVE_INFINITY;
         for (int i = lo; i < hi; i++) {
@@ -149,6 +178,7 @@ public final class DRStats {
      */
     public static int min(int[] a) {
         validateNotNull(a);
+        if (KERNELS != null) return KERNELS.min(a, 0, a.length);
 
         int min = Integer.MAX_VALUE;
         for (int i = 0; i < a.length; i++)
@@ -205,7 +235,7 @@ public final class DRStats {
         validateNotNull(a);
 
         if (a.length == 0) return Double.NaN;
-        int sum = sum(a);
+        long sum = sum(a);
         double mean = 1.0 * sum / a.length;
 
         return mean;
@@ -223,10 +253,7 @@ public final class DRStats {
 
         if (a.length == 0) return Double.NaN;
         double average = mean(a);
-        double sum = 0.0;
-
-        for (int i = 0; i < a.length; i++)
-            sum += (a[i] - average) * (a[i] - average);
+        double sum = sumOfSquaredDeviations(a, 0, a.length, average);
 
         double var = sum / (a.length - 1);
         return var;
@@ -252,9 +279,7 @@ public final class DRStats {
         if (length == 0) return Double.NaN;
 
         double average = mean(a, lo, hi);
-        double sum = 0.0;
-        for (int i = lo; i < hi; i++)
-            sum += (a[i] - average) * (a[i] - average);
+        double sum = sumOfSquaredDeviations(a, lo, hi, average);
 
         double var = sum / (length - 1);
         return var;
@@ -272,9 +297,7 @@ public final class DRStats {
         if (a.length == 0) return Double.NaN;
 
         double average = mean(a);
-        double sum = 0.0;
-        for (int i = 0; i < a.length; i++)
-            sum += (a[i] - average) * (a[i] - average);
+        double sum = sumOfSquaredDeviations(a, 0, a.length, average);
 
         double var = sum / (a.length - 1);
         return var;
@@ -292,9 +315,7 @@ public final class DRStats {
         if (a.length == 0) return Double.NaN;
 
         double average = mean(a);
-        double sum = 0.0;
-        for (int i = 0; i < a.length; i++)
-            sum += (a[i] - average) * (a[i] - average);
+        double sum = sumOfSquaredDeviations(a, 0, a.length, average);
 
         double varp = sum / a.length;
         return varp;
@@ -320,9 +341,7 @@ public final class DRStats {
         if (length == 0) return Double.NaN;
 
         double average = mean(a, lo, hi);
-        double sum = 0.0;
-        for (int i = lo; i < hi; i++)
-            sum += (a[i] - average) * (a[i] - average);
+        double sum = sumOfSquaredDeviations(a, lo, hi, average);
         double varp = sum / length;
         return varp;
     }
@@ -397,56 +416,1935 @@ public final class DRStats {
         return Math.sqrt(varp(a, lo, hi));
     }
 
+    /*
+     * Order statistics. Quantiles are found by selection, not sorting:
+     * Floyd and Rivest's algorithm partitions around a pivot chosen from
+     * a small sample and runs in expected linear time, and a loop that
+     * fails to converge falls back to sorting what is left, so the worst
+     * case is O(n log n) (introselect). quantiles() selects the needed
+     * ranks recursively, so every partition narrows the search for all of
+     * them at once. Quantiles interpolate linearly between order
+     * statistics, like R's default (type 7) and NumPy's "linear": the
+     * p-quantile of n values is x[h] with h = (n - 1) p, interpolating
+     * between the neighbors of a fractional h. The plain methods work on
+     * a copy; the InPlace variants reorder the array instead.
+     */
+
+    /**
+     * Returns the median of the values in the specified array.
+     *
+     * @param  a the array
+     * @return the median of {@code a[]}; {@code Double.NaN} if {@code a} is
+     *         empty or contains {@code NaN}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double median(double[] a) {
+        return quantile(a, 0.5);
+    }
+
     /**
-     * Returns the sum of all values in the specified array.
+     * Returns the median of the values in the specified array, reordering
+     * the array instead of copying it.
+     *
+     * @param  a the array
+     * @return the median of {@code a[]}; {@code Double.NaN} if {@code a} is
+     *         empty or contains {@code NaN}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double medianInPlace(double[] a) {
+        return quantileInPlace(a, 0.5);
+    }
+
+    /**
+     * Returns the p-quantile of the values in the specified array.
+     *
+     * @param  a the array
+     * @param  p the probability, between 0 and 1
+     * @return the p-quantile of {@code a[]}; {@code Double.NaN} if {@code a}
+     *         is empty or contains {@code NaN}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code 0 <= p <= 1}
+     */
+    public static double quantile(double[] a, double p) {
+        validateNotNull(a);
+        validateProbability(p);
+        if (a.length == 0 || hasNaN(a)) return Double.NaN;
+        return quantileInPlace(a.clone(), p);
+    }
+
+    /**
+     * Returns the p-quantile of the values in the specified array,
+     * reordering the array instead of copying it.
+     *
+     * @param  a the array
+     * @param  p the probability, between 0 and 1
+     * @return the p-quantile of {@code a[]}; {@code Double.NaN} if {@code a}
+     *         is empty or contains {@code NaN}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code 0 <= p <= 1}
+     */
+    public static double quantileInPlace(double[] a, double p) {
+        validateNotNull(a);
+        validateProbability(p);
+        if (a.length == 0 || hasNaN(a)) return Double.NaN;
+
+        double h = (a.length - 1) * p;
+        int k = (int) h;
+        select(a, 0, a.length - 1, k);
+        if (k == h || k == a.length - 1) return a[k];
+
+        // a[k+1..] are all >= a[k]; the next order statistic is their minimum
+        double next = a[k + 1];
+        for (int i = k + 2; i < a.length; i++)
+            if (a[i] < next) next = a[i];
+        return interpolate(a[k], next, h - k);
+    }
+
+    /**
+     * Returns the quantiles of the values in the specified array for
+     * each of the specified probabilities, partitioning a single copy.
+     *
+     * @param  a the array
+     * @param  p the probabilities, each between 0 and 1, in any order
+     * @return the quantiles, in the order of {@code p}; all {@code NaN}
+     *         if {@code a} is empty or contains {@code NaN}
+     * @throws IllegalArgumentException if {@code a} or {@code p} is {@code null}
+     * @throws IllegalArgumentException unless every {@code 0 <= p[i] <= 1}
+     */
+    public static double[] quantiles(double[] a, double... p) {
+        validateNotNull(a);
+        validateNotNull(p);
+        for (double x : p)
+            validateProbability(x);
+        if (a.length == 0 || hasNaN(a)) return nanArray(p.length);
+        return quantilesInPlace(a.clone(), p);
+    }
+
+    /**
+     * Returns the quantiles of the values in the specified array for
+     * each of the specified probabilities, reordering the array instead
+     * of copying it.
+     *
+     * @param  a the array
+     * @param  p the probabilities, each between 0 and 1, in any order
+     * @return the quantiles, in the order of {@code p}; all {@code NaN}
+     *         if {@code a} is empty or contains {@code NaN}
+     * @throws IllegalArgumentException if {@code a} or {@code p} is {@code null}
+     * @throws IllegalArgumentException unless every {@code 0 <= p[i] <= 1}
+     */
+    public static double[] quantilesInPlace(double[] a, double... p) {
+        validateNotNull(a);
+        validateNotNull(p);
+        for (double x : p)
+            validateProbability(x);
+        if (a.length == 0 || hasNaN(a)) return nanArray(p.length);
+
+        // every rank any quantile needs, sorted and without duplicates
+        int n = a.length;
+        int[] ranks = new int[2 * p.length];
+        int count = 0;
+        for (double x : p) {
+            double h = (n - 1) * x;
+            int k = (int) h;
+            ranks[count++] = k;
+            if (k != h && k < n - 1) ranks[count++] = k + 1;
+        }
+        Arrays.sort(ranks, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++)
+            if (distinct == 0 || ranks[i] != ranks[distinct - 1]) ranks[distinct++] = ranks[i];
+
+        multiSelect(a, 0, n - 1, ranks, 0, distinct - 1);
+
+        double[] q = new double[p.length];
+        for (int i = 0; i < p.length; i++) {
+            double h = (n - 1) * p[i];
+            int k = (int) h;
+            q[i] = (k == h || k == n - 1) ? a[k] : interpolate(a[k], a[k + 1], h - k);
+        }
+        return q;
+    }
+
+    /**
+     * Rearranges the specified array so that {@code a[k]} is the value
+     * that would be there if the array were sorted, with no larger value
+     * before it and no smaller value after it, and returns that value.
+     *
+     * @param  a the array, which must not contain {@code NaN}
+     * @param  k the rank, from 0 for the minimum
+     * @return the k-th smallest value in {@code a[]}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code 0 <= k < a.length}
+     */
+    public static double select(double[] a, int k) {
+        validateNotNull(a);
+        if (k < 0 || k >= a.length)
+            throw new IllegalArgumentException("rank out of bounds: " + k);
+        select(a, 0, a.length - 1, k);
+        return a[k];
+    }
+
+    // select each of ranks[rlo..rhi] (sorted, all within [lo, hi]):
+    // place the middle one, then recurse into the two sides
+    private static void multiSelect(double[] a, int lo, int hi, int[] ranks, int rlo, int rhi) {
+        if (rlo > rhi) return;
+        int mid = (rlo + rhi) >>> 1;
+        int k = ranks[mid];
+        select(a, lo, hi, k);
+        multiSelect(a, lo, k - 1, ranks, rlo, mid - 1);
+        multiSelect(a, k + 1, hi, ranks, mid + 1, rhi);
+    }
+
+    // Floyd-Rivest selection of rank k within a[left..right]
+    private static void select(double[] a, int left, int right, int k) {
+        int rounds = 0;
+        int limit = 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1)) + 8;
+        while (right > left) {
+            if (++rounds > limit) {
+                // not converging: finish this part by sorting it
+                Arrays.sort(a, left, right + 1);
+                return;
+            }
+            if (right - left > 600) {
+                // narrow [left, right] around k using a sample
+                int n = right - left + 1;
+                int i = k - left + 1;
+                double z = Math.log(n);
+                double s = 0.5 * Math.exp(2 * z / 3);
+                double sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * Math.signum(i - n / 2.0);
+                int newLeft = Math.max(left, (int) (k - i * s / n + sd));
+                int newRight = Math.min(right, (int) (k + (n - i) * s / n + sd));
+                select(a, newLeft, newRight, k);
+            }
+
+            // partition a[left..right] around t = a[k]
+            double t = a[k];
+            int i = left;
+            int j = right;
+            swap(a, left, k);
+            if (a[right] > t) swap(a, right, left);
+            while (i < j) {
+                swap(a, i, j);
+                i++;
+                j--;
+                while (a[i] < t) i++;
+                while (a[j] > t) j--;
+            }
+            if (a[left] == t) {
+                swap(a, left, j);
+            }
+            else {
+                j++;
+                swap(a, j, right);
+            }
+            if (j <= k) left = j + 1;
+            if (k <= j) right = j - 1;
+        }
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    // x + f * (y - x), exact at both ends
+    private static double interpolate(double x, double y, double f) {
+        if (x == y) return x;
+        return x + f * (y - x);
+    }
+
+    private static boolean hasNaN(double[] a) {
+        for (int i = 0; i < a.length; i++)
+            if (a[i] != a[i]) return true;
+        return false;
+    }
+
+    private static double[] nanArray(int n) {
+        double[] a = new double[n];
+        Arrays.fill(a, Double.NaN);
+        return a;
+    }
+
+    private static void validateProbability(double p) {
+        if (!(p >= 0.0 && p <= 1.0))
+            throw new IllegalArgumentException("probability must be between 0 and 1: " + p);
+    }
+
+    /*
+     * Summation modes. NAIVE adds left to right, even where the plain sum
+     * would use the vector kernels, so its error can grow in proportion
+     * to the length of the array; on 10^9 values that can cost half the
+     * significant digits of a mean. NEUMAIER carries
+     * the rounding error of every addition in a second variable, so the
+     * error stays at a few units in the last place regardless of length.
+     * PAIRWISE adds blocks of PAIRWISE_BLOCK values and combines block
+     * sums in a balanced tree, so the error grows only with log n. Both
+     * loops are unrolled into independent chains, which keeps them within
+     * a small factor of the plain sum.
+     */
+
+    /**
+     * How {@link #sum(double[], Summation)} adds up values.
+     */
+    public enum Summation {
+        /** Left-to-right addition, even with the vector kernels: error up to n ulps. */
+        NAIVE,
+        /** Neumaier's compensated (Kahan-Babuška) summation: error independent of n. */
+        NEUMAIER,
+        /** Blocked pairwise summation: error up to log n ulps. */
+        PAIRWISE
+    }
+
+    /**
+     * Returns the sum of all values in the specified array, added up as
+     * the specified mode says.
      *
      * @param  a the array
+     * @param  mode the summation mode
      * @return the sum of all values in the array {@code a[]};
      *         {@code 0.0} if no such value
+     * @throws IllegalArgumentException if {@code a} or {@code mode} is {@code null}
      */
-    private static double sum(double[] a) {
+    public static double sum(double[] a, Summation mode) {
         validateNotNull(a);
-        double sum = 0.0;
-        for (int i = 0; i < a.length; i++)
-            sum += a[i];
-        return sum;
+        return sum(a, 0, a.length, mode);
     }
 
     /**
-     * Returns the sum of all values in the specified subarray.
+     * Returns the sum of all values in the specified subarray, added up
+     * as the specified mode says.
      *
      * @param  a the array
      * @param lo the left endpoint of the subarray (inclusive)
      * @param hi the right endpoint of the subarray (exclusive)
+     * @param  mode the summation mode
      * @return the sum of all values in the subarray {@code a[lo..hi)};
      *         {@code 0.0} if no such value
+     * @throws IllegalArgumentException if {@code a} or {@code mode} is {@code null}
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo <= hi) && (hi <= a.length)}
+     */
+    public static double sum(double[] a, int lo, int hi, Summation mode) {
+        validateNotNull(a);
+        validateNotNull(mode);
+        validateSubarrayIndices(lo, hi, a.length);
+
+        switch (mode) {
+            case NEUMAIER: return neumaierSum(a, lo, hi);
+            case PAIRWISE: return pairwiseSum(a, lo, hi);
+            default:       return naiveSum(a, lo, hi);
+        }
+    }
+
+    /**
+     * Returns the average value in the specified array, with the sum
+     * added up as the specified mode says.
+     *
+     * @param  a the array
+     * @param  mode the summation mode
+     * @return the average value in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} or {@code mode} is {@code null}
+     */
+    public static double mean(double[] a, Summation mode) {
+        validateNotNull(a);
+
+        if (a.length == 0) return Double.NaN;
+        return sum(a, mode) / a.length;
+    }
+
+    /**
+     * Returns the exact sum of all values in the specified array.
+     *
+     * @param  a the array
+     * @return the sum of all values in the array {@code a[]}, as a long
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static long sumLong(int[] a) {
+        return sum(a);
+    }
+
+    // Neumaier summation with two independent chains, merged at the end
+    private static double neumaierSum(double[] a, int lo, int hi) {
+        double s0 = 0.0, c0 = 0.0;
+        double s1 = 0.0, c1 = 0.0;
+        int i = lo;
+        for (; i + 1 < hi; i += 2) {
+            double x = a[i];
+            double t = s0 + x;
+            c0 += Math.abs(s0) >= Math.abs(x) ? (s0 - t) + x : (x - t) + s0;
+            s0 = t;
+
+            double y = a[i + 1];
+            double u = s1 + y;
+            c1 += Math.abs(s1) >= Math.abs(y) ? (s1 - u) + y : (y - u) + s1;
+            s1 = u;
+        }
+        if (i < hi) {
+            double x = a[i];
+            double t = s0 + x;
+            c0 += Math.abs(s0) >= Math.abs(x) ? (s0 - t) + x : (x - t) + s0;
+            s0 = t;
+        }
+        double t = s0 + s1;
+        double c = c0 + c1 + (Math.abs(s0) >= Math.abs(s1) ? (s0 - t) + s1 : (s1 - t) + s0);
+        return compensated(t, c);
+    }
+
+    // pairwise summation: halve down to PAIRWISE_BLOCK values, sum each
+    // block with four accumulators, and add the halves
+    private static double pairwiseSum(double[] a, int lo, int hi) {
+        int n = hi - lo;
+        if (n <= PAIRWISE_BLOCK) {
+            double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+            int i = lo;
+            for (; i + 3 < hi; i += 4) {
+                s0 += a[i];
+                s1 += a[i + 1];
+                s2 += a[i + 2];
+                s3 += a[i + 3];
+            }
+            for (; i < hi; i++)
+                s0 += a[i];
+            return (s0 + s1) + (s2 + s3);
+        }
+        int mid = lo + ((n >>> 1) & ~7);
+        return pairwiseSum(a, lo, mid) + pairwiseSum(a, mid, hi);
+    }
+
+    /*
+     * Summary statistics. A summary computes all of the above in a single
+     * pass: a compensated (Neumaier) sum, and Welford's running mean and
+     * sum of squared deviations for the variances.
+     */
+
+    /**
+     * Returns the count, minimum, maximum, sum, mean and variances of the
+     * values in the specified array, computed in one pass.
+     *
+     * @param  a the array
+     * @return the summary statistics of {@code a[]}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static Summary summary(double[] a) {
+        validateNotNull(a);
+        return summary(a, 0, a.length);
+    }
+
+    /**
+     * Returns the count, minimum, maximum, sum, mean and variances of the
+     * values in the specified subarray, computed in one pass.
+     *
+     * @param  a the array
+     * @param lo the left endpoint of the subarray (inclusive)
+     * @param hi the right endpoint of the subarray (exclusive)
+     * @return the summary statistics of {@code a[lo..hi)}
      * @throws IllegalArgumentException if {@code a} is {@code null}
      * @throws IllegalArgumentException unless
      *         {@code (0 <= lo) && (lo < hi) && (hi <= a.length)}
      */
-    private static double sum(double[] a, int lo, int hi) {
+    public static Summary summary(double[] a, int lo, int hi) {
         validateNotNull(a);
         validateSubarrayIndices(lo, hi, a.length);
 
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        boolean nan = false;
         double sum = 0.0;
-        for (int i = lo; i < hi; i++)
-            sum += a[i];
-        return sum;
+        double c = 0.0;             // running compensation for lost low-order bits
+        double mean = 0.0;
+        double m2 = 0.0;
+        long n = 0;
+        for (int i = lo; i < hi; i++) {
+            double x = a[i];
+            if (x != x) nan = true;
+            if (x < min) min = x;
+            if (x > max) max = x;
+
+            double t = sum + x;
+            if (Math.abs(sum) >= Math.abs(x)) c += (sum - t) + x;
+            else                              c += (x - t) + sum;
+            sum = t;
+
+            n++;
+            double d = x - mean;
+            mean += d / n;
+            m2 += d * (x - mean);
+        }
+        if (nan) min = max = Double.NaN;
+        return new Summary(n, min, max, compensated(sum, c), m2);
     }
 
     /**
-     * Returns the sum of all values in the specified array.
+     * Returns the count, minimum, maximum, sum, mean and variances of the
+     * values in the specified array, computed in one pass.
      *
      * @param  a the array
-     * @return the sum of all values in the array {@code a[]};
-     *         {@code 0.0} if no such value
+     * @return the summary statistics of {@code a[]}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
      */
-    private static int sum(int[] a) {
+    public static Summary summary(int[] a) {
         validateNotNull(a);
-        int sum = 0;
-        for (int i = 0; i < a.length; i++)
-            sum += a[i];
-        return sum;
+        return summary(a, 0, a.length);
+    }
+
+    /**
+     * Returns the count, minimum, maximum, sum, mean and variances of the
+     * values in the specified subarray, computed in one pass. The sum is
+     * exact.
+     *
+     * @param  a the array
+     * @param lo the left endpoint of the subarray (inclusive)
+     * @param hi the right endpoint of the subarray (exclusive)
+     * @return the summary statistics of {@code a[lo..hi)}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo < hi) && (hi <= a.length)}
+     */
+    public static Summary summary(int[] a, int lo, int hi) {
+        validateNotNull(a);
+        validateSubarrayIndices(lo, hi, a.length);
+
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        long sum = 0;
+        double mean = 0.0;
+        double m2 = 0.0;
+        long n = 0;
+        for (int i = lo; i < hi; i++) {
+            int x = a[i];
+            if (x < min) min = x;
+            if (x > max) max = x;
+            sum += x;
+
+            n++;
+            double d = x - mean;
+            mean += d / n;
+            m2 += d * (x - mean);
+        }
+        if (n == 0) return new Summary(0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0.0, 0.0);
+        return new Summary(n, min, max, sum, m2);
+    }
+
+    // a Neumaier sum plus its compensation, unless the sum overflowed
+    private static double compensated(double sum, double c) {
+        if (Double.isInfinite(sum)) return sum;
+        return sum + c;
+    }
+
+    /**
+     * An immutable set of summary statistics: count, minimum, maximum,
+     * sum, mean, and sample and population variance. For no values the
+     * minimum is {@code +infinity}, the maximum {@code -infinity}, the
+     * sum 0 and everything else {@code NaN}; if any value is {@code NaN},
+     * so are the minimum and maximum.
+     */
+    public static final class Summary {
+        private final long count;
+        private final double min;
+        private final double max;
+        private final double sum;
+        private final double m2;    // sum of squared deviations from the mean
+
+        Summary(long count, double min, double max, double sum, double m2) {
+            this.count = count;
+            this.min = min;
+            this.max = max;
+            this.sum = sum;
+            this.m2 = m2;
+        }
+
+        /** Returns the number of values. */
+        public long count() {
+            return count;
+        }
+
+        /** Returns the minimum value. */
+        public double min() {
+            return min;
+        }
+
+        /** Returns the maximum value. */
+        public double max() {
+            return max;
+        }
+
+        /** Returns the sum of the values. */
+        public double sum() {
+            return sum;
+        }
+
+        /** Returns the average value. */
+        public double mean() {
+            if (count == 0) return Double.NaN;
+            return sum / count;
+        }
+
+        /** Returns the sample variance. */
+        public double var() {
+            if (count == 0) return Double.NaN;
+            return m2 / (count - 1);
+        }
+
+        /** Returns the population variance. */
+        public double varp() {
+            if (count == 0) return Double.NaN;
+            return m2 / count;
+        }
+
+        /** Returns the sample standard deviation. */
+        public double stddev() {
+            return Math.sqrt(var());
+        }
+
+        /** Returns the population standard deviation. */
+        public double stddevp() {
+            return Math.sqrt(varp());
+        }
+
+        /**
+         * Returns a one-line description of the statistics.
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "n = %d, min = %.3f, max = %.3f, mean = %.3f, stddev = %.3f",
+                                 count, min, max, mean(), stddev());
+        }
+    }
+
+    /*
+     * Parallel summaries. The array is cut into fixed blocks of
+     * PARALLEL_BLOCK elements, each block is summarized on its own (two
+     * passes while it is in cache), and the block summaries are merged
+     * up a balanced binary tree on the common ForkJoinPool. The blocks
+     * and the tree depend only on the length of the array, so the
+     * results are the same, bit for bit, whatever the number of threads.
+     */
+
+    /**
+     * Returns the summary statistics of the specified array, computed in
+     * parallel. The result does not depend on the number of threads.
+     *
+     * @param  a the array
+     * @return the summary statistics of {@code a[]}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static Summary parallelSummary(double[] a) {
+        validateNotNull(a);
+        return parallelSummary(a, 0, a.length);
+    }
+
+    /**
+     * Returns the summary statistics of the specified subarray, computed
+     * in parallel. The result does not depend on the number of threads.
+     *
+     * @param  a the array
+     * @param lo the left endpoint of the subarray (inclusive)
+     * @param hi the right endpoint of the subarray (exclusive)
+     * @return the summary statistics of {@code a[lo..hi)}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo <= hi) && (hi <= a.length)}
+     */
+    public static Summary parallelSummary(double[] a, int lo, int hi) {
+        validateNotNull(a);
+        validateSubarrayIndices(lo, hi, a.length);
+        return new SummaryTask(a, null, lo, hi).invoke().summary();
+    }
+
+    /**
+     * Returns the summary statistics of the specified array, computed in
+     * parallel. The result does not depend on the number of threads.
+     *
+     * @param  a the array
+     * @return the summary statistics of {@code a[]}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static Summary parallelSummary(int[] a) {
+        validateNotNull(a);
+        return parallelSummary(a, 0, a.length);
+    }
+
+    /**
+     * Returns the summary statistics of the specified subarray, computed
+     * in parallel. The result does not depend on the number of threads.
+     *
+     * @param  a the array
+     * @param lo the left endpoint of the subarray (inclusive)
+     * @param hi the right endpoint of the subarray (exclusive)
+     * @return the summary statistics of {@code a[lo..hi)}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo <= hi) && (hi <= a.length)}
+     */
+    public static Summary parallelSummary(int[] a, int lo, int hi) {
+        validateNotNull(a);
+        validateSubarrayIndices(lo, hi, a.length);
+        return new SummaryTask(null, a, lo, hi).invoke().summary();
+    }
+
+    /**
+     * Returns the summary statistics of the specified matrix, computed in
+     * parallel.
+     *
+     * @param  a the matrix
+     * @return the summary statistics of all elements of {@code a}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static Summary parallelSummary(DRDoubleMatrix a) {
+        validateNotNull(a);
+        return parallelSummary(a.data());
+    }
+
+    // summarizes the blocks of [lo, hi) and merges them pairwise
+    private static final class SummaryTask extends RecursiveTask<DRAccumulator> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] doubles;     // exactly one of these is non-null
+        private final int[] ints;
+        private final int lo;
+        private final int hi;
+
+        SummaryTask(double[] doubles, int[] ints, int lo, int hi) {
+            this.doubles = doubles;
+            this.ints = ints;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected DRAccumulator compute() {
+            int blocks = (int) (((long) hi - lo + PARALLEL_BLOCK - 1) / PARALLEL_BLOCK);
+            if (blocks <= 1)
+                return doubles != null ? block(doubles, lo, hi) : block(ints, lo, hi);
+            int mid = lo + (blocks / 2) * PARALLEL_BLOCK;
+            SummaryTask left = new SummaryTask(doubles, ints, lo, mid);
+            SummaryTask right = new SummaryTask(doubles, ints, mid, hi);
+            left.fork();
+            DRAccumulator result = right.compute();
+            DRAccumulator merged = left.join();
+            merged.merge(result);
+            return merged;
+        }
+
+        private static DRAccumulator block(double[] a, int lo, int hi) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            boolean nan = false;
+            double sum = 0.0;
+            double c = 0.0;
+            for (int i = lo; i < hi; i++) {
+                double x = a[i];
+                if (x != x) nan = true;
+                if (x < min) min = x;
+                if (x > max) max = x;
+                double t = sum + x;
+                if (Math.abs(sum) >= Math.abs(x)) c += (sum - t) + x;
+                else                              c += (x - t) + sum;
+                sum = t;
+            }
+            int n = hi - lo;
+            double mean = n == 0 ? 0.0 : compensated(sum, c) / n;
+            double m2 = 0.0;
+            double err = 0.0;           // corrects for rounding in the mean
+            for (int i = lo; i < hi; i++) {
+                double d = a[i] - mean;
+                m2 += d * d;
+                err += d;
+            }
+            if (n > 0) m2 -= err * err / n;
+            return DRAccumulator.of(n, min, max, nan, sum, c, mean, m2);
+        }
+
+        private static DRAccumulator block(int[] a, int lo, int hi) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            long sum = 0;
+            for (int i = lo; i < hi; i++) {
+                int x = a[i];
+                if (x < min) min = x;
+                if (x > max) max = x;
+                sum += x;
+            }
+            int n = hi - lo;
+            if (n == 0) return new DRAccumulator();
+            double mean = (double) sum / n;
+            double m2 = 0.0;
+            double err = 0.0;
+            for (int i = lo; i < hi; i++) {
+                double d = a[i] - mean;
+                m2 += d * d;
+                err += d;
+            }
+            m2 -= err * err / n;
+            double s = (double) sum;
+            return DRAccumulator.of(n, min, max, false, s, (double) (sum - (long) s), mean, m2);
+        }
+    }
+
+    /*
+     * Rolling statistics. Each method slides a window along the array
+     * and returns the statistic of every window in one O(n) pass, instead
+     * of O(w) work per window. A count window covers w consecutive values,
+     * and the result has n - w + 1 entries, the first for a[0..w). A time
+     * window ends at each value a[i] and covers the values whose times are
+     * within span of t[i], that is t[j] > t[i] - span, and the result has
+     * n entries. As in the methods above, a window containing NaN gives
+     * NaN. Sums and variances are updated as values enter and leave the
+     * window (Welford's update, run backwards for leaving values) and are
+     * recomputed exactly each time a window's worth of values has left,
+     * so rounding errors do not pile up; minima and maxima use a
+     * monotonic deque of candidate positions. DRRollingWindow does the
+     * same one value at a time.
+     */
+
+    /**
+     * Returns the sums of all windows of w consecutive values.
+     *
+     * @param  a the array
+     * @param  w the window size
+     * @return the sums of {@code a[i..i+w)} for each {@code i}, of length
+     *         {@code max(0, a.length - w + 1)}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code w >= 1}
+     */
+    public static double[] rollingSum(double[] a, int w) {
+        validateWindow(a, w);
+        return rollingMoments(a, null, 0.0, w, ROLLING_SUM);
+    }
+
+    /**
+     * Returns the averages of all windows of w consecutive values.
+     *
+     * @param  a the array
+     * @param  w the window size
+     * @return the averages of {@code a[i..i+w)} for each {@code i}, of length
+     *         {@code max(0, a.length - w + 1)}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code w >= 1}
+     */
+    public static double[] rollingMean(double[] a, int w) {
+        validateWindow(a, w);
+        return rollingMoments(a, null, 0.0, w, ROLLING_MEAN);
+    }
+
+    /**
+     * Returns the sample variances of all windows of w consecutive values.
+     *
+     * @param  a the array
+     * @param  w the window size
+     * @return the sample variances of {@code a[i..i+w)} for each {@code i},
+     *         of length {@code max(0, a.length - w + 1)}; {@code NaN} if
+     *         {@code w == 1}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code w >= 1}
+     */
+    public static double[] rollingVar(double[] a, int w) {
+        validateWindow(a, w);
+        return rollingMoments(a, null, 0.0, w, ROLLING_VAR);
+    }
+
+    /**
+     * Returns the minima of all windows of w consecutive values.
+     *
+     * @param  a the array
+     * @param  w the window size
+     * @return the minima of {@code a[i..i+w)} for each {@code i}, of length
+     *         {@code max(0, a.length - w + 1)}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code w >= 1}
+     */
+    public static double[] rollingMin(double[] a, int w) {
+        validateWindow(a, w);
+        return rollingExtremes(a, null, 0.0, w, false);
+    }
+
+    /**
+     * Returns the maxima of all windows of w consecutive values.
+     *
+     * @param  a the array
+     * @param  w the window size
+     * @return the maxima of {@code a[i..i+w)} for each {@code i}, of length
+     *         {@code max(0, a.length - w + 1)}
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code w >= 1}
+     */
+    public static double[] rollingMax(double[] a, int w) {
+        validateWindow(a, w);
+        return rollingExtremes(a, null, 0.0, w, true);
+    }
+
+    /**
+     * Returns the sums of the time windows ending at each value.
+     *
+     * @param  t the times of the values, in nondecreasing order
+     * @param  a the values
+     * @param  span the length of the windows
+     * @return the sums of the values {@code a[j]} with {@code j <= i} and
+     *         {@code t[j] > t[i] - span}, for each {@code i}
+     * @throws IllegalArgumentException if {@code t} or {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code t} and {@code a} have the
+     *         same length, {@code t} is nondecreasing, and {@code span > 0}
+     */
+    public static double[] rollingSum(double[] t, double[] a, double span) {
+        validateTimeWindow(t, a, span);
+        return rollingMoments(a, t, span, 0, ROLLING_SUM);
+    }
+
+    /**
+     * Returns the averages of the time windows ending at each value.
+     *
+     * @param  t the times of the values, in nondecreasing order
+     * @param  a the values
+     * @param  span the length of the windows
+     * @return the averages of the values {@code a[j]} with {@code j <= i}
+     *         and {@code t[j] > t[i] - span}, for each {@code i}
+     * @throws IllegalArgumentException if {@code t} or {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code t} and {@code a} have the
+     *         same length, {@code t} is nondecreasing, and {@code span > 0}
+     */
+    public static double[] rollingMean(double[] t, double[] a, double span) {
+        validateTimeWindow(t, a, span);
+        return rollingMoments(a, t, span, 0, ROLLING_MEAN);
+    }
+
+    /**
+     * Returns the sample variances of the time windows ending at each value.
+     *
+     * @param  t the times of the values, in nondecreasing order
+     * @param  a the values
+     * @param  span the length of the windows
+     * @return the sample variances of the values {@code a[j]} with
+     *         {@code j <= i} and {@code t[j] > t[i] - span}, for each
+     *         {@code i}; {@code NaN} for windows of one value
+     * @throws IllegalArgumentException if {@code t} or {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code t} and {@code a} have the
+     *         same length, {@code t} is nondecreasing, and {@code span > 0}
+     */
+    public static double[] rollingVar(double[] t, double[] a, double span) {
+        validateTimeWindow(t, a, span);
+        return rollingMoments(a, t, span, 0, ROLLING_VAR);
+    }
+
+    /**
+     * Returns the minima of the time windows ending at each value.
+     *
+     * @param  t the times of the values, in nondecreasing order
+     * @param  a the values
+     * @param  span the length of the windows
+     * @return the minima of the values {@code a[j]} with {@code j <= i} and
+     *         {@code t[j] > t[i] - span}, for each {@code i}
+     * @throws IllegalArgumentException if {@code t} or {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code t} and {@code a} have the
+     *         same length, {@code t} is nondecreasing, and {@code span > 0}
+     */
+    public static double[] rollingMin(double[] t, double[] a, double span) {
+        validateTimeWindow(t, a, span);
+        return rollingExtremes(a, t, span, 0, false);
+    }
+
+    /**
+     * Returns the maxima of the time windows ending at each value.
+     *
+     * @param  t the times of the values, in nondecreasing order
+     * @param  a the values
+     * @param  span the length of the windows
+     * @return the maxima of the values {@code a[j]} with {@code j <= i} and
+     *         {@code t[j] > t[i] - span}, for each {@code i}
+     * @throws IllegalArgumentException if {@code t} or {@code a} is {@code null}
+     * @throws IllegalArgumentException unless {@code t} and {@code a} have the
+     *         same length, {@code t} is nondecreasing, and {@code span > 0}
+     */
+    public static double[] rollingMax(double[] t, double[] a, double span) {
+        validateTimeWindow(t, a, span);
+        return rollingExtremes(a, t, span, 0, true);
+    }
+
+    // sum, mean or sample variance of each window: the count window
+    // a[e-w+1..e] if t is null, else the time window ending at a[e]
+    private static double[] rollingMoments(double[] a, double[] t, double span, int w, int kind) {
+        int n = a.length;
+        double[] result = new double[t == null ? Math.max(0, n - w + 1) : n];
+        int s = 0;                  // start of the window
+        int nonFinite = 0;          // NaN and infinities in the window
+        int nans = 0, posInf = 0, negInf = 0;
+        int k = 0;                  // finite values in the window
+        double sum = 0.0, c = 0.0;  // Neumaier sum of the finite values
+        double mean = 0.0, m2 = 0.0;
+        int removed = 0;            // finite values removed since the last refresh
+
+        for (int e = 0; e < n; e++) {
+            // value a[e] enters
+            double x = a[e];
+            if (x - x == 0.0) {
+                k++;
+                double tmp = sum + x;
+                if (Math.abs(sum) >= Math.abs(x)) c += (sum - tmp) + x;
+                else                              c += (x - tmp) + sum;
+                sum = tmp;
+                double delta = x - mean;
+                mean += delta / k;
+                m2 += delta * (x - mean);
+            }
+            else {
+                nonFinite++;
+                if      (x != x) nans++;
+                else if (x > 0)  posInf++;
+                else             negInf++;
+            }
+
+            // values before the window leave
+            int start = t == null ? e - w + 1 : s;
+            if (t != null)
+                while (start < e && t[start] <= t[e] - span) start++;
+            for (; s < start; s++) {
+                double y = a[s];
+                if (y - y != 0.0) {
+                    nonFinite--;
+                    if      (y != y) nans--;
+                    else if (y > 0)  posInf--;
+                    else             negInf--;
+                    continue;
+                }
+                k--;
+                if (k == 0) {
+                    sum = c = mean = m2 = 0.0;
+                    removed = 0;
+                    continue;
+                }
+                double tmp = sum - y;
+                if (Math.abs(sum) >= Math.abs(y)) c += (sum - tmp) - y;
+                else                              c += (-y - tmp) + sum;
+                sum = tmp;
+                double delta = y - mean;
+                mean -= delta / k;
+                m2 = Math.max(0.0, m2 - delta * (y - mean));
+                removed++;
+            }
+            if (start < 0) continue;
+
+            // recompute exactly once a window's worth of values has left
+            int count = e - start + 1;
+            if (removed >= count && removed >= 16) {
+                sum = c = 0.0;
+                for (int i = start; i <= e; i++) {
+                    double y = a[i];
+                    if (y - y != 0.0) continue;
+                    double tmp = sum + y;
+                    if (Math.abs(sum) >= Math.abs(y)) c += (sum - tmp) + y;
+                    else                              c += (y - tmp) + sum;
+                    sum = tmp;
+                }
+                mean = (sum + c) / k;
+                m2 = 0.0;
+                for (int i = start; i <= e; i++) {
+                    double y = a[i];
+                    if (y - y == 0.0) m2 += (y - mean) * (y - mean);
+                }
+                removed = 0;
+            }
+
+            double value;
+            if (kind == ROLLING_VAR) {
+                value = (nonFinite > 0 || count < 2) ? Double.NaN : m2 / (count - 1);
+            }
+            else {
+                if      (nans > 0 || (posInf > 0 && negInf > 0)) value = Double.NaN;
+                else if (posInf > 0)                           value = Double.POSITIVE_INFINITY;
+                else if (negInf > 0)                           value = Double.NEGATIVE_INFINITY;
+                else                                           value = sum + c;
+                if (kind == ROLLING_MEAN) value /= count;
+            }
+            result[t == null ? start : e] = value;
+        }
+        return result;
+    }
+
+    // minimum or maximum of each window, with a deque of the positions of
+    // values that are still candidates: increasing values for a minimum,
+    // decreasing for a maximum, so the front is the answer
+    private static double[] rollingExtremes(double[] a, double[] t, double span, int w, boolean max) {
+        int n = a.length;
+        double[] result = new double[t == null ? Math.max(0, n - w + 1) : n];
+        int[] deque = new int[n];
+        int head = 0, tail = 0;
+        int lastNaN = -1;
+        int s = 0;
+
+        for (int e = 0; e < n; e++) {
+            double x = a[e];
+            if (x != x) {
+                lastNaN = e;
+            }
+            else {
+                if (max) while (tail > head && a[deque[tail - 1]] <= x) tail--;
+                else     while (tail > head && a[deque[tail - 1]] >= x) tail--;
+                deque[tail++] = e;
+            }
+
+            if (t == null) s = e - w + 1;
+            else while (s < e && t[s] <= t[e] - span) s++;
+            if (s < 0) continue;
+            while (tail > head && deque[head] < s) head++;
+
+            int i = t == null ? s : e;
+            if (lastNaN >= s) result[i] = Double.NaN;
+            else              result[i] = a[deque[head]];
+        }
+        return result;
+    }
+
+    private static void validateWindow(double[] a, int w) {
+        validateNotNull(a);
+        if (w < 1)
+            throw new IllegalArgumentException("window size must be positive: " + w);
+    }
+
+    private static void validateTimeWindow(double[] t, double[] a, double span) {
+        validateNotNull(t);
+        validateNotNull(a);
+        if (t.length != a.length)
+            throw new IllegalArgumentException("times and values differ in length: " + t.length + " != " + a.length);
+        if (!(span > 0.0))
+            throw new IllegalArgumentException("span must be positive: " + span);
+        for (int i = 0; i < t.length; i++)
+            if (t[i] - t[i] != 0.0 || (i > 0 && t[i] < t[i - 1]))
+                throw new IllegalArgumentException("times must be finite and nondecreasing: t[" + i + "] = " + t[i]);
+    }
+
+    /*
+     * Matrix statistics. The elements of a DRDoubleMatrix or DRIntMatrix
+     * are one contiguous array, so these run the array versions over it
+     * directly. For a single row use the subarray versions on
+     * a.data() from a.offset(i) to a.offset(i) + a.cols().
+     */
+
+    /**
+     * Returns the maximum value of all elements in the specified matrix.
+     *
+     * @param  a the matrix
+     * @return the maximum value of all elements of {@code a};
+     *         {@code Double.NEGATIVE_INFINITY} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double max(DRDoubleMatrix a) {
+        validateNotNull(a);
+        return max(a.data());
+    }
+
+    /**
+     * Returns the minimum value of all elements in the specified matrix.
+     *
+     * @param  a the matrix
+     * @return the minimum value of all elements of {@code a};
+     *         {@code Double.POSITIVE_INFINITY} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double min(DRDoubleMatrix a) {
+        validateNotNull(a);
+        return min(a.data());
+    }
+
+    /**
+     * Returns the average value of all elements in the specified matrix.
+     *
+     * @param  a the matrix
+     * @return the average value of all elements of {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double mean(DRDoubleMatrix a) {
+        validateNotNull(a);
+        return mean(a.data());
+    }
+
+    /**
+     * Returns the sample variance of all elements in the specified matrix.
+     *
+     * @param  a the matrix
+     * @return the sample variance of all elements of {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double var(DRDoubleMatrix a) {
+        validateNotNull(a);
+        return var(a.data());
+    }
+
+    /**
+     * Returns the population variance of all elements in the specified matrix.
+     *
+     * @param  a the matrix
+     * @return the population variance of all elements of {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double varp(DRDoubleMatrix a) {
+        validateNotNull(a);
+        return varp(a.data());
+    }
+
+    /**
+     * Returns the sample standard deviation of all elements in the specified matrix.
+     *
+     * @param  a the matrix
+     * @return the sample standard deviation of all elements of {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double stddev(DRDoubleMatrix a) {
+        validateNotNull(a);
+        return stddev(a.data());
+    }
+
+    /**
+     * Returns the population standard deviation of all elements in the specified matrix.
+     *
+     * @param  a the matrix
+     * @return the population standard deviation of all elements of {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double stddevp(DRDoubleMatrix a) {
+        validateNotNull(a);
+        return stddevp(a.data());
+    }
+
+    /**
+     * Returns the maximum value of all elements in the specified matrix.
+     *
+     * @param  a the matrix
+     * @return the maximum value of all elements of {@code a};
+     *         {@code Integer.MIN_VALUE} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static int max(DRIntMatrix a) {
+        validateNotNull(a);
+        return max(a.data());
+    }
+
+    /**
+     * Returns the minimum value of all elements in the specified matrix.
+     *
+     * @param  a the matrix
+     * @return the minimum value of all elements of {@code a};
+     *         {@code Integer.MAX_VALUE} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static int min(DRIntMatrix a) {
+        validateNotNull(a);
+        return min(a.data());
+    }
+
+    /**
+     * Returns the average value of all elements in the specified matrix.
+     *
+     * @param  a the matrix
+     * @return the average value of all elements of {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double mean(DRIntMatrix a) {
+        validateNotNull(a);
+        return mean(a.data());
+    }
+
+    /**
+     * Returns the sample variance of all elements in the specified matrix.
+     *
+     * @param  a the matrix
+     * @return the sample variance of all elements of {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double var(DRIntMatrix a) {
+        validateNotNull(a);
+        return var(a.data());
+    }
+
+    /**
+     * Returns the sample standard deviation of all elements in the specified matrix.
+     *
+     * @param  a the matrix
+     * @return the sample standard deviation of all elements of {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double stddev(DRIntMatrix a) {
+        validateNotNull(a);
+        return stddev(a.data());
+    }
+
+    /*
+     * Narrow and wide element types. Floats follow the double methods
+     * (a NaN makes min and max NaN); shorts, bytes and longs follow the
+     * int methods. Means and variances are computed in double.
+     */
+
+    /**
+     * Returns the maximum value in the specified array of floats.
+     *
+     * @param  a the array
+     * @return the maximum value in the array {@code a[]};
+     *         {@code Float.NEGATIVE_INFINITY} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static float max(float[] a) {
+        validateNotNull(a);
+
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < a.length; i++) {
+            if (Float.isNaN(a[i])) return Float.NaN;
+            if (a[i] > max) max = a[i];
+        }
+        return max;
+    }
+
+    /**
+     * Returns the minimum value in the specified array of floats.
+     *
+     * @param  a the array
+     * @return the minimum value in the array {@code a[]};
+     *         {@code Float.POSITIVE_INFINITY} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static float min(float[] a) {
+        validateNotNull(a);
+
+        float min = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < a.length; i++) {
+            if (Float.isNaN(a[i])) return Float.NaN;
+            if (a[i] < min) min = a[i];
+        }
+        return min;
+    }
+
+    /**
+     * Returns the average value in the specified array of floats.
+     *
+     * @param  a the array
+     * @return the average value in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double mean(float[] a) {
+        validateNotNull(a);
+
+        if (a.length == 0) return Double.NaN;
+        return sum(a) / a.length;
+    }
+
+    /**
+     * Returns the sample variance in the specified array of floats.
+     *
+     * @param  a the array
+     * @return the sample variance in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double var(float[] a) {
+        validateNotNull(a);
+        if (a.length == 0) return Double.NaN;
+
+        double average = mean(a);
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++)
+            sum += (a[i] - average) * (a[i] - average);
+
+        double var = sum / (a.length - 1);
+        return var;
+    }
+
+    /**
+     * Returns the sample standard deviation in the specified array of floats.
+     *
+     * @param  a the array
+     * @return the sample standard deviation in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double stddev(float[] a) {
+        validateNotNull(a);
+        return Math.sqrt(var(a));
+    }
+
+    /**
+     * Returns the maximum value in the specified array of longs.
+     *
+     * @param  a the array
+     * @return the maximum value in the array {@code a[]};
+     *         {@code Long.MIN_VALUE} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static long max(long[] a) {
+        validateNotNull(a);
+
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] > max) max = a[i];
+        }
+        return max;
+    }
+
+    /**
+     * Returns the minimum value in the specified array of longs.
+     *
+     * @param  a the array
+     * @return the minimum value in the array {@code a[]};
+     *         {@code Long.MAX_VALUE} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static long min(long[] a) {
+        validateNotNull(a);
+
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] < min) min = a[i];
+        }
+        return min;
+    }
+
+    /**
+     * Returns the average value in the specified array of longs.
+     *
+     * @param  a the array
+     * @return the average value in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double mean(long[] a) {
+        validateNotNull(a);
+
+        if (a.length == 0) return Double.NaN;
+        try {
+            long sum = exactSum(a);
+            long q = sum / a.length;
+            double hi = q;
+            return hi + ((q - (long) hi) + (double) (sum % a.length) / a.length);
+        }
+        catch (ArithmeticException e) {
+            return wideSum(a) / a.length;
+        }
+    }
+
+    /**
+     * Returns the sample variance in the specified array of longs.
+     *
+     * @param  a the array
+     * @return the sample variance in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double var(long[] a) {
+        validateNotNull(a);
+        if (a.length == 0) return Double.NaN;
+
+        double average = mean(a);
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++)
+            sum += (a[i] - average) * (a[i] - average);
+
+        double var = sum / (a.length - 1);
+        return var;
+    }
+
+    /**
+     * Returns the sample standard deviation in the specified array of longs.
+     *
+     * @param  a the array
+     * @return the sample standard deviation in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double stddev(long[] a) {
+        validateNotNull(a);
+        return Math.sqrt(var(a));
+    }
+
+    /**
+     * Returns the maximum value in the specified array of shorts.
+     *
+     * @param  a the array
+     * @return the maximum value in the array {@code a[]};
+     *         {@code Short.MIN_VALUE} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static short max(short[] a) {
+        validateNotNull(a);
+
+        short max = Short.MIN_VALUE;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] > max) max = a[i];
+        }
+        return max;
+    }
+
+    /**
+     * Returns the minimum value in the specified array of shorts.
+     *
+     * @param  a the array
+     * @return the minimum value in the array {@code a[]};
+     *         {@code Short.MAX_VALUE} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static short min(short[] a) {
+        validateNotNull(a);
+
+        short min = Short.MAX_VALUE;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] < min) min = a[i];
+        }
+        return min;
+    }
+
+    /**
+     * Returns the average value in the specified array of shorts.
+     *
+     * @param  a the array
+     * @return the average value in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double mean(short[] a) {
+        validateNotNull(a);
+
+        if (a.length == 0) return Double.NaN;
+        return 1.0 * sum(a) / a.length;
+    }
+
+    /**
+     * Returns the sample variance in the specified array of shorts.
+     *
+     * @param  a the array
+     * @return the sample variance in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double var(short[] a) {
+        validateNotNull(a);
+        if (a.length == 0) return Double.NaN;
+
+        double average = mean(a);
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++)
+            sum += (a[i] - average) * (a[i] - average);
+
+        double var = sum / (a.length - 1);
+        return var;
+    }
+
+    /**
+     * Returns the sample standard deviation in the specified array of shorts.
+     *
+     * @param  a the array
+     * @return the sample standard deviation in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double stddev(short[] a) {
+        validateNotNull(a);
+        return Math.sqrt(var(a));
+    }
+
+    /**
+     * Returns the maximum value in the specified array of bytes.
+     *
+     * @param  a the array
+     * @return the maximum value in the array {@code a[]};
+     *         {@code Byte.MIN_VALUE} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static byte max(byte[] a) {
+        validateNotNull(a);
+
+        byte max = Byte.MIN_VALUE;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] > max) max = a[i];
+        }
+        return max;
+    }
+
+    /**
+     * Returns the minimum value in the specified array of bytes.
+     *
+     * @param  a the array
+     * @return the minimum value in the array {@code a[]};
+     *         {@code Byte.MAX_VALUE} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static byte min(byte[] a) {
+        validateNotNull(a);
+
+        byte min = Byte.MAX_VALUE;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] < min) min = a[i];
+        }
+        return min;
+    }
+
+    /**
+     * Returns the average value in the specified array of bytes.
+     *
+     * @param  a the array
+     * @return the average value in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double mean(byte[] a) {
+        validateNotNull(a);
+
+        if (a.length == 0) return Double.NaN;
+        return 1.0 * sum(a) / a.length;
+    }
+
+    /**
+     * Returns the sample variance in the specified array of bytes.
+     *
+     * @param  a the array
+     * @return the sample variance in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double var(byte[] a) {
+        validateNotNull(a);
+        if (a.length == 0) return Double.NaN;
+
+        double average = mean(a);
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++)
+            sum += (a[i] - average) * (a[i] - average);
+
+        double var = sum / (a.length - 1);
+        return var;
+    }
+
+    /**
+     * Returns the sample standard deviation in the specified array of bytes.
+     *
+     * @param  a the array
+     * @return the sample standard deviation in the array {@code a[]};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double stddev(byte[] a) {
+        validateNotNull(a);
+        return Math.sqrt(var(a));
+    }
+
+    /*
+     * Off-heap statistics. These walk the segments of a DRBigDoubleArray
+     * in place, so the data is never copied onto the heap.
+     */
+
+    /**
+     * Returns the maximum value in the specified off-heap array.
+     *
+     * @param  a the off-heap array
+     * @return the maximum value in {@code a};
+     *         {@code Double.NEGATIVE_INFINITY} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double max(DRBigDoubleArray a) {
+        validateNotNull(a);
+
+        double max = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < a.segments(); k++) {
+            DoubleBuffer seg = a.segment(k);
+            for (int i = 0, n = seg.limit(); i < n; i++) {
+                double x = seg.get(i);
+                if (Double.isNaN(x)) return Double.NaN;
+                if (x > max) max = x;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the minimum value in the specified off-heap array.
+     *
+     * @param  a the off-heap array
+     * @return the minimum value in {@code a};
+     *         {@code Double.POSITIVE_INFINITY} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double min(DRBigDoubleArray a) {
+        validateNotNull(a);
+
+        double min = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < a.segments(); k++) {
+            DoubleBuffer seg = a.segment(k);
+            for (int i = 0, n = seg.limit(); i < n; i++) {
+                double x = seg.get(i);
+                if (Double.isNaN(x)) return Double.NaN;
+                if (x < min) min = x;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Returns the average value in the specified off-heap array.
+     *
+     * @param  a the off-heap array
+     * @return the average value in {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double mean(DRBigDoubleArray a) {
+        validateNotNull(a);
+
+        if (a.length() == 0) return Double.NaN;
+        double sum = 0.0;
+        for (int k = 0; k < a.segments(); k++) {
+            DoubleBuffer seg = a.segment(k);
+            for (int i = 0, n = seg.limit(); i < n; i++)
+                sum += seg.get(i);
+        }
+        return sum / a.length();
+    }
+
+    /**
+     * Returns the sample variance in the specified off-heap array.
+     *
+     * @param  a the off-heap array
+     * @return the sample variance in {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double var(DRBigDoubleArray a) {
+        validateNotNull(a);
+
+        if (a.length() == 0) return Double.NaN;
+        return sumOfSquaredDeviations(a) / (a.length() - 1);
+    }
+
+    /**
+     * Returns the population variance in the specified off-heap array.
+     *
+     * @param  a the off-heap array
+     * @return the population variance in {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double varp(DRBigDoubleArray a) {
+        validateNotNull(a);
+
+        if (a.length() == 0) return Double.NaN;
+        return sumOfSquaredDeviations(a) / a.length();
+    }
+
+    /**
+     * Returns the sample standard deviation in the specified off-heap array.
+     *
+     * @param  a the off-heap array
+     * @return the sample standard deviation in {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double stddev(DRBigDoubleArray a) {
+        return Math.sqrt(var(a));
+    }
+
+    /**
+     * Returns the population standard deviation in the specified off-heap array.
+     *
+     * @param  a the off-heap array
+     * @return the population standard deviation in {@code a};
+     *         {@code Double.NaN} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static double stddevp(DRBigDoubleArray a) {
+        return Math.sqrt(varp(a));
+    }
+
+    // sum of (a[i] - mean)^2, as in var(double[])
+    private static double sumOfSquaredDeviations(DRBigDoubleArray a) {
+        double average = mean(a);
+        double sum = 0.0;
+        for (int k = 0; k < a.segments(); k++) {
+            DoubleBuffer seg = a.segment(k);
+            for (int i = 0, n = seg.limit(); i < n; i++) {
+                double d = seg.get(i) - average;
+                sum += d * d;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the sum of all values in the specified array.
+     *
+     * @param  a the array
+     * @return the sum of all values in the array {@code a[]};
+     *         {@code 0.0} if no such value
+     */
+    private static double sum(double[] a) {
+        validateNotNull(a);
+        if (KERNELS != null) return KERNELS.sum(a, 0, a.length);
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    /**
+     * Returns the sum of all values in the specified subarray.
+     *
+     * @param  a the array
+     * @param lo the left endpoint of the subarray (inclusive)
+     * @param hi the right endpoint of the subarray (exclusive)
+     * @return the sum of all values in the subarray {@code a[lo..hi)};
+     *         {@code 0.0} if no such value
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     * @throws IllegalArgumentException unless
+     *         {@code (0 <= lo) && (lo < hi) && (hi <= a.length)}
+     */
+    private static double sum(double[] a, int lo, int hi) {
+        validateNotNull(a);
+        validateSubarrayIndices(lo, hi, a.length);
+        if (KERNELS != null) return KERNELS.sum(a, lo, hi);
+        return naiveSum(a, lo, hi);
+    }
+
+    // left-to-right sum of a[lo..hi), never vectorized
+    private static double naiveSum(double[] a, int lo, int hi) {
+        double sum = 0.0;
+        for (int i = lo; i < hi; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    /**
+     * Returns the sum of all values in the specified array, in a long
+     * so that it cannot overflow.
+     *
+     * @param  a the array
+     * @return the sum of all values in the array {@code a[]};
+     *         {@code 0} if no such value
+     */
+    private static long sum(int[] a) {
+        validateNotNull(a);
+        if (KERNELS != null) return KERNELS.sum(a, 0, a.length);
+        long sum = 0;
+        for (int i = 0; i < a.length; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    // Neumaier sum of the values in the array
+    private static double sum(float[] a) {
+        double sum = 0.0, c = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            double x = a[i];
+            double t = sum + x;
+            c += Math.abs(sum) >= Math.abs(x) ? (sum - t) + x : (x - t) + sum;
+            sum = t;
+        }
+        return compensated(sum, c);
+    }
+
+    // sum of the values in the array: exact in a long unless that overflows
+    private static double sum(long[] a) {
+        try {
+            return exactSum(a);
+        }
+        catch (ArithmeticException e) {
+            return wideSum(a);
+        }
+    }
+
+    // sum of the values in the array; throws ArithmeticException on overflow
+    private static long exactSum(long[] a) {
+        long sum = 0;
+        for (int i = 0; i < a.length; i++)
+            sum = Math.addExact(sum, a[i]);
+        return sum;
+    }
+
+    // sum of the values in the array, exact until rounded to a double: the
+    // high and low 32 bits of the values are summed in separate longs, which
+    // cannot overflow for fewer than 2^31 values
+    private static double wideSum(long[] a) {
+        long high = 0, low = 0;
+        for (int i = 0; i < a.length; i++) {
+            high += a[i] >> 32;
+            low += a[i] & 0xFFFFFFFFL;
+        }
+        high += low >>> 32;
+        low &= 0xFFFFFFFFL;
+        return high * 0x1p32 + low;
+    }
+
+    // sum of the values in the array
+    private static long sum(short[] a) {
+        long sum = 0;
+        for (int i = 0; i < a.length; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    // sum of the values in the array
+    private static long sum(byte[] a) {
+        long sum = 0;
+        for (int i = 0; i < a.length; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    // sum of (a[i] - mean)^2 over a[lo..hi)
+    private static double sumOfSquaredDeviations(double[] a, int lo, int hi, double mean) {
+        if (KERNELS != null) return KERNELS.sumOfSquaredDeviations(a, lo, hi, mean);
+        double sum = 0.0;
+        for (int i = lo; i < hi; i++)
+            sum += (a[i] - mean) * (a[i] - mean);
+        return sum;
+    }
+
+    // sum of (a[i] - mean)^2 over a[lo..hi)
+    private static double sumOfSquaredDeviations(int[] a, int lo, int hi, double mean) {
+        if (KERNELS != null) return KERNELS.sumOfSquaredDeviations(a, lo, hi, mean);
+        double sum = 0.0;
+        for (int i = lo; i < hi; i++)
+            sum += (a[i] - mean) * (a[i] - mean);
+        return sum;
+    }
+
+    /*
+     * SIMD kernels. When the incubating Vector API module is present
+     * (run with --add-modules jdk.incubator.vector) and DRStatsVector,
+     * compiled separately from vector/DRStatsVector.java, is on the
+     * class path, the basic reductions over double[] and int[]
+     * use its kernels, which process a full vector register of elements
+     * per instruction; otherwise the scalar loops above run. Set the
+     * system property DRStats.vector=false to force the scalar loops.
+     * The vector sums add in a different order, so they can differ from
+     * the scalar sums in the last bits; min and max return exactly what
+     * the scalar loops do.
+     */
+
+    // the reductions DRStatsVector implements, over a[lo..hi)
+    interface Kernels {
+        double sum(double[] a, int lo, int hi);
+        double min(double[] a, int lo, int hi);
+        double max(double[] a, int lo, int hi);
+        double sumOfSquaredDeviations(double[] a, int lo, int hi, double mean);
+        long sum(int[] a, int lo, int hi);
+        int min(int[] a, int lo, int hi);
+        int max(int[] a, int lo, int hi);
+        double sumOfSquaredDeviations(int[] a, int lo, int hi, double mean);
+    }
+
+    // the vector kernels, or null if they are not available
+    private static Kernels loadKernels() {
+        if ("false".equals(System.getProperty("DRStats.vector"))) return null;
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) return null;
+        try {
+            return (Kernels) Class.forName("DRStatsVector").getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
     }
 
     /**
@@ -506,9 +2404,9 @@ public final class DRStats {
 
     // thrwo an exception unless 0 <= lo <= hi <= length
     private static void validateSubarrayIndices(int lo, int hi, int length) {
-        if (lo < 0 && hi > length && lo > hi) {
+        if (lo < 0 || hi > length || lo > hi) {
             throw new IllegalArgumentException
-                ("subarray indices out of bounds: [" + lo + ", " + "]");
+                ("subarray indices out of bounds: [" + lo + ", " + hi + ")");
         }
     }
 
@@ -521,12 +2419,14 @@ public final class DRStats {
      */
     public static void main(String[] args) {
         double[] a = DRArrayIO.readDouble1D();
-        DROut.printf("        min %10.3f\n", min(a));
-        DROut.printf("       mean %10.3f\n", mean(a));
-        DROut.printf("        max %10.3f\n", max(a));
-        DROut.printf("     stddev %10.3f\n", stddev(a));
-        DROut.printf("        var %10.3f\n", var(a));
-        DROut.printf("    stddevp %10.3f\n", stddevp(a));
-        DROut.printf("       varp %10.3f\n", varp(a));
+        Summary s = summary(a);
+        DROut.printf("        min %10.3f\n", s.min());
+        DROut.printf("       mean %10.3f\n", s.mean());
+        DROut.printf("     median %10.3f\n", median(a));
+        DROut.printf("        max %10.3f\n", s.max());
+        DROut.printf("     stddev %10.3f\n", s.stddev());
+        DROut.printf("        var %10.3f\n", s.var());
+        DROut.printf("    stddevp %10.3f\n", s.stddevp());
+        DROut.printf("       varp %10.3f\n", s.varp());
     }
 }
@@ -0,0 +1,144 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  see DRBench.java
+ * Execution:    java -cp ... drbench.DRBench DRArrayIOBench
+ * Dependencies: DRIn.java
+ *               DROut.java
+ *               DRArrayIO.java
+ *
+ * Read and print throughput of DRArrayIO for 1D and 2D arrays of
+ * integers and doubles. A 2D array of the given size has 100 columns.
+ *
+ ***************************************************************************/
+
+package drbench;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DRArrayIOBench {
+
+    private static final int COLS = 100;
+
+    /** Number of elements in the array. */
+    @Param({ "10000", "1000000" })
+    public int size;
+
+    private byte[] doubles1D;
+    private byte[] doubles2D;
+    private byte[] ints1D;
+    private byte[] ints2D;
+
+    private double[] a;
+    private double[][] b;
+    private int[] c;
+    private int[][] d;
+
+    private Inputs.CountingOutputStream sink;
+
+    @Setup
+    public void setup() throws Throwable {
+        int rows = size / COLS;
+        doubles1D = Inputs.doubles1D(size);
+        doubles2D = Inputs.doubles2D(rows, COLS);
+        ints1D = Inputs.ints1D(size);
+        ints2D = Inputs.ints2D(rows, COLS);
+
+        a = Inputs.randomDoubles(size);
+        b = new double[rows][];
+        for (int i = 0; i < rows; i++)
+            b[i] = Inputs.randomDoubles(COLS);
+        c = Inputs.randomInts(size);
+        d = new int[rows][];
+        for (int i = 0; i < rows; i++)
+            d[i] = Inputs.randomInts(COLS);
+
+        sink = new Inputs.CountingOutputStream();
+        Lib.setOutput(sink);
+    }
+
+    @TearDown
+    public void tearDown() throws Throwable {
+        Lib.setOutput(System.out);
+    }
+
+    @Benchmark
+    public double[] readDouble1D(Throughput t) throws Throwable {
+        Lib.setInput(new ByteArrayInputStream(doubles1D));
+        double[] x = (double[]) Lib.READ_DOUBLE_1D.invokeExact();
+        t.add(doubles1D.length, size);
+        return x;
+    }
+
+    @Benchmark
+    public double[][] readDouble2D(Throughput t) throws Throwable {
+        Lib.setInput(new ByteArrayInputStream(doubles2D));
+        double[][] x = (double[][]) Lib.READ_DOUBLE_2D.invokeExact();
+        t.add(doubles2D.length, size);
+        return x;
+    }
+
+    @Benchmark
+    public int[] readInt1D(Throughput t) throws Throwable {
+        Lib.setInput(new ByteArrayInputStream(ints1D));
+        int[] x = (int[]) Lib.READ_INT_1D.invokeExact();
+        t.add(ints1D.length, size);
+        return x;
+    }
+
+    @Benchmark
+    public int[][] readInt2D(Throughput t) throws Throwable {
+        Lib.setInput(new ByteArrayInputStream(ints2D));
+        int[][] x = (int[][]) Lib.READ_INT_2D.invokeExact();
+        t.add(ints2D.length, size);
+        return x;
+    }
+
+    @Benchmark
+    public void printDouble1D(Throughput t) throws Throwable {
+        long before = sink.count;
+        Lib.PRINT_DOUBLE_1D.invokeExact(a);
+        t.add(sink.count - before, size);
+    }
+
+    @Benchmark
+    public void printDouble2D(Throughput t) throws Throwable {
+        long before = sink.count;
+        Lib.PRINT_DOUBLE_2D.invokeExact(b);
+        t.add(sink.count - before, size);
+    }
+
+    @Benchmark
+    public void printInt1D(Throughput t) throws Throwable {
+        long before = sink.count;
+        Lib.PRINT_INT_1D.invokeExact(c);
+        t.add(sink.count - before, size);
+    }
+
+    @Benchmark
+    public void printInt2D(Throughput t) throws Throwable {
+        long before = sink.count;
+        Lib.PRINT_INT_2D.invokeExact(d);
+        t.add(sink.count - before, size);
+    }
+}
@@ -0,0 +1,61 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac -encoding UTF-8 -d classes ../*.java
+ *               javac -encoding UTF-8 -d classes \
+ *                     -cp classes:jmh-core.jar:jmh-generator-annprocess.jar \
+ *                     drbench/*.java
+ * Execution:    java -cp classes:jmh-core.jar:jopt-simple.jar:commons-math3.jar \
+ *                    drbench.DRBench [regexp]
+ * Dependencies: JMH 1.37 (jmh-core, jmh-generator-annprocess and
+ *               their jopt-simple and commons-math3 dependencies)
+ *
+ * Runs the DRIn, DROut and DRArrayIO benchmarks with the GC profiler.
+ *
+ * Commands are run from this directory (bench). The first javac
+ * compiles the library; the second compiles the benchmarks, and the JMH
+ * annotation processor generates the harness next to them. An optional
+ * regular expression selects benchmarks, for example DRInBench.readInt.
+ *
+ * Each result line gives ops/s, then the secondary results mb (MB/s of
+ * text) and tokens (numbers/s), and from the GC profiler
+ * gc.alloc.rate (MB/s) and gc.alloc.rate.norm (bytes per operation).
+ *
+ * % java -cp ... drbench.DRBench DRInBench.readInt
+ * Benchmark                           (n)   Mode  Cnt  Score  Units
+ * DRInBench.readInt                  1000  thrpt    5    ...  ops/s
+ * DRInBench.readInt:mb               1000  thrpt    5    ...  ops/s
+ * DRInBench.readInt:tokens           1000  thrpt    5    ...  ops/s
+ * DRInBench.readInt:gc.alloc.rate    1000  thrpt    5    ...  MB/sec
+ * ...
+ *
+ ***************************************************************************/
+
+package drbench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public final class DRBench {
+
+    // don't instantiate
+    private DRBench() { }
+
+    /**
+     * Runs the benchmarks whose names match the first argument, or all
+     * of them.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "drbench\\.DR.*Bench";
+        Options options = new OptionsBuilder()
+            .include(include)
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,79 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  see DRBench.java
+ * Execution:    java -cp ... drbench.DRBench DRInBench
+ * Dependencies: DRIn.java
+ *
+ * Parse throughput of DRIn on synthetic integers and doubles.
+ *
+ ***************************************************************************/
+
+package drbench;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DRInBench {
+
+    /** Number of values in the input. */
+    @Param({ "1000", "100000", "1000000" })
+    public int n;
+
+    private byte[] ints;
+    private byte[] doubles;
+
+    @Setup
+    public void setup() {
+        ints = Inputs.ints1D(n);
+        doubles = Inputs.doubles1D(n);
+    }
+
+    @Benchmark
+    public long readInt(Throughput t) throws Throwable {
+        Lib.setInput(new ByteArrayInputStream(ints));
+        int count = (int) Lib.READ_INT.invokeExact();
+        long sum = 0;
+        for (int i = 0; i < count; i++)
+            sum += (int) Lib.READ_INT.invokeExact();
+        t.add(ints.length, count + 1);
+        return sum;
+    }
+
+    @Benchmark
+    public double readDouble(Throughput t) throws Throwable {
+        Lib.setInput(new ByteArrayInputStream(doubles));
+        int count = (int) Lib.READ_INT.invokeExact();
+        double sum = 0.0;
+        for (int i = 0; i < count; i++)
+            sum += (double) Lib.READ_DOUBLE.invokeExact();
+        t.add(doubles.length, count + 1);
+        return sum;
+    }
+
+    @Benchmark
+    public double[] readAllDoubles(Throughput t) throws Throwable {
+        Lib.setInput(new ByteArrayInputStream(doubles));
+        double[] a = (double[]) Lib.READ_ALL_DOUBLES.invokeExact();
+        t.add(doubles.length, a.length);
+        return a;
+    }
+}
@@ -0,0 +1,75 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  see DRBench.java
+ * Execution:    java -cp ... drbench.DRBench DROutBench
+ * Dependencies: DROut.java
+ *
+ * Print throughput of DROut.println and DROut.printf. Output goes to a
+ * stream that only counts bytes, so the numbers measure formatting and
+ * the writer stack rather than a terminal or disk.
+ *
+ ***************************************************************************/
+
+package drbench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DROutBench {
+
+    /** Number of values printed per operation. */
+    @Param({ "1000", "100000" })
+    public int n;
+
+    private int[] ints;
+    private double[] doubles;
+    private Inputs.CountingOutputStream sink;
+
+    @Setup
+    public void setup() throws Throwable {
+        ints = Inputs.randomInts(n);
+        doubles = Inputs.randomDoubles(n);
+        sink = new Inputs.CountingOutputStream();
+        Lib.setOutput(sink);
+    }
+
+    @TearDown
+    public void tearDown() throws Throwable {
+        Lib.setOutput(System.out);
+    }
+
+    @Benchmark
+    public void println(Throughput t) throws Throwable {
+        long before = sink.count;
+        for (int i = 0; i < n; i++)
+            Lib.PRINTLN_INT.invokeExact(ints[i]);
+        t.add(sink.count - before, n);
+    }
+
+    @Benchmark
+    public void printf(Throughput t) throws Throwable {
+        long before = sink.count;
+        for (int i = 0; i < n; i++)
+            Lib.PRINTF.invokeExact("%9.5f ", new Object[] { doubles[i] });
+        t.add(sink.count - before, n);
+    }
+}
@@ -0,0 +1,109 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  see DRBench.java
+ * Dependencies: none
+ *
+ * Synthetic inputs for the benchmarks.
+ *
+ * Every input is generated from a fixed seed in the same text format
+ * DRArrayIO reads (a size line followed by the elements), so runs are
+ * repeatable and need no files or network.
+ *
+ ***************************************************************************/
+
+package drbench;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+final class Inputs {
+
+    private static final long SEED = 20240101L;
+
+    // don't instantiate
+    private Inputs() { }
+
+    // n doubles in [0, 1000) with 5 decimals, preceded by n
+    static byte[] doubles1D(int n) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder(n * 11 + 16);
+        sb.append(n).append('\n');
+        for (int i = 0; i < n; i++)
+            sb.append(String.format(Locale.US, "%.5f ", 1000 * random.nextDouble()));
+        sb.append('\n');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // an m-by-n matrix of doubles, preceded by m and n
+    static byte[] doubles2D(int m, int n) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder(m * n * 11 + 16);
+        sb.append(m).append(' ').append(n).append('\n');
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                sb.append(String.format(Locale.US, "%.5f ", 1000 * random.nextDouble()));
+            sb.append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // n integers in [-10^6, 10^6), preceded by n
+    static byte[] ints1D(int n) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder(n * 9 + 16);
+        sb.append(n).append('\n');
+        for (int i = 0; i < n; i++)
+            sb.append(random.nextInt(2000000) - 1000000).append(' ');
+        sb.append('\n');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // an m-by-n matrix of integers, preceded by m and n
+    static byte[] ints2D(int m, int n) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder(m * n * 9 + 16);
+        sb.append(m).append(' ').append(n).append('\n');
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++)
+                sb.append(random.nextInt(2000000) - 1000000).append(' ');
+            sb.append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static double[] randomDoubles(int n) {
+        Random random = new Random(SEED);
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++)
+            a[i] = 1000 * random.nextDouble();
+        return a;
+    }
+
+    static int[] randomInts(int n) {
+        Random random = new Random(SEED);
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++)
+            a[i] = random.nextInt(2000000) - 1000000;
+        return a;
+    }
+
+    /**
+     * An output stream that discards its data and counts the bytes.
+     */
+    static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  see DRBench.java
+ * Dependencies: DRIn.java
+ *               DROut.java
+ *               DRArrayIO.java
+ *
+ * Handles on the library methods the benchmarks call.
+ *
+ * The library lives in the unnamed package, which code in a named
+ * package (and JMH insists on one) cannot import. The methods are
+ * looked up once by name; calls through a static final MethodHandle
+ * are inlined by the JIT like direct calls.
+ *
+ ***************************************************************************/
+
+package drbench;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+final class Lib {
+
+    static final MethodHandle SET_INPUT;
+    static final MethodHandle READ_INT;
+    static final MethodHandle READ_DOUBLE;
+    static final MethodHandle READ_ALL_DOUBLES;
+
+    static final MethodHandle SET_OUTPUT;
+    static final MethodHandle PRINTLN_INT;
+    static final MethodHandle PRINTF;
+
+    static final MethodHandle READ_DOUBLE_1D;
+    static final MethodHandle READ_DOUBLE_2D;
+    static final MethodHandle READ_INT_1D;
+    static final MethodHandle READ_INT_2D;
+    static final MethodHandle PRINT_DOUBLE_1D;
+    static final MethodHandle PRINT_DOUBLE_2D;
+    static final MethodHandle PRINT_INT_1D;
+    static final MethodHandle PRINT_INT_2D;
+
+    static {
+        try {
+            Class<?> in = Class.forName("DRIn");
+            Class<?> out = Class.forName("DROut");
+            Class<?> io = Class.forName("DRArrayIO");
+
+            SET_INPUT = find(in, "setInput", void.class, InputStream.class);
+            READ_INT = find(in, "readInt", int.class);
+            READ_DOUBLE = find(in, "readDouble", double.class);
+            READ_ALL_DOUBLES = find(in, "readAllDoubles", double[].class);
+
+            SET_OUTPUT = find(out, "setOutput", void.class, OutputStream.class);
+            PRINTLN_INT = find(out, "println", void.class, int.class);
+            PRINTF = find(out, "printf", void.class, String.class, Object[].class);
+
+            READ_DOUBLE_1D = find(io, "readDouble1D", double[].class);
+            READ_DOUBLE_2D = find(io, "readDouble2D", double[][].class);
+            READ_INT_1D = find(io, "readInt1D", int[].class);
+            READ_INT_2D = find(io, "readInt2D", int[][].class);
+            PRINT_DOUBLE_1D = find(io, "print", void.class, double[].class);
+            PRINT_DOUBLE_2D = find(io, "print", void.class, double[][].class);
+            PRINT_INT_1D = find(io, "print", void.class, int[].class);
+            PRINT_INT_2D = find(io, "print", void.class, int[][].class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // don't instantiate
+    private Lib() { }
+
+    private static MethodHandle find(Class<?> c, String name, Class<?> returnType,
+                                     Class<?>... parameterTypes)
+        throws ReflectiveOperationException {
+        MethodType type = MethodType.methodType(returnType, parameterTypes);
+        return MethodHandles.publicLookup().findStatic(c, name, type);
+    }
+
+    // DRIn reads from in from now on
+    static void setInput(InputStream in) throws Throwable {
+        SET_INPUT.invokeExact(in);
+    }
+
+    // DROut writes to out from now on
+    static void setOutput(OutputStream out) throws Throwable {
+        SET_OUTPUT.invokeExact(out);
+    }
+}
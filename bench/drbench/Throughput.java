@@ -0,0 +1,42 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  see DRBench.java
+ * Dependencies: none
+ *
+ * Secondary results reported next to the ops/s of each benchmark.
+ *
+ * JMH divides the counters by the measured time, so they come out as
+ * megabytes of text per second and tokens (numbers) per second.
+ *
+ ***************************************************************************/
+
+package drbench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+
+    /** Megabytes of text parsed or printed. */
+    public double mb;
+
+    /** Numbers parsed or printed. */
+    public long tokens;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        mb = 0;
+        tokens = 0;
+    }
+
+    void add(long bytes, long count) {
+        mb += bytes / 1e6;
+        tokens += count;
+    }
+}
@@ -0,0 +1,216 @@
+/***************************************************************************
+ * @author Danny Ramírez
+ *
+ * Compilation:  javac -encoding UTF-8 --add-modules jdk.incubator.vector \
+ *                     -d . vector/DRStatsVector.java
+ * Execution:    java --add-modules jdk.incubator.vector DRStatsVector n
+ * Dependencies: DRStats.java
+ *               DRRandom.java
+ *               DROut.java
+ *
+ * SIMD kernels for the DRStats reductions, written with the incubating
+ * Vector API.
+ *
+ * Each kernel works through the array one vector register at a time
+ * (4 doubles or 8 ints with AVX2, twice that with AVX-512), keeping a
+ * vector of partial results, and finishes the last few elements with a
+ * scalar loop. DRStats picks these kernels up by itself when the module
+ * is present; this class is not used directly. It lives in its own
+ * directory because javac needs the module flag, so that the rest of the
+ * library still compiles with javac *.java. Compile it from the parent
+ * directory after the library, as above, to put its class next to the
+ * others.
+ *
+ * % java --add-modules jdk.incubator.vector DRStatsVector 10000000
+ * 8 double lanes, 16 int lanes
+ * sum: vector 5000853.942 (4.2 ms), scalar 5000853.942 (8.1 ms)
+ *
+ ***************************************************************************/
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@code DRStatsVector} class implements the {@link DRStats}
+ * reduction kernels over a subarray {@code a[lo..hi)}. Min and max
+ * return the same values as the scalar loops of DRStats: {@code NaN} if
+ * any value is {@code NaN}, and of {@code -0.0} and {@code 0.0} the one
+ * that comes first.
+ */
+final class DRStatsVector implements DRStats.Kernels {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    // ints with one lane per double (or long) lane, for widening ints
+    private static final VectorSpecies<Integer> HALF_INTS =
+        VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    DRStatsVector() { }
+
+    @Override
+    public double sum(double[] a, int lo, int hi) {
+        int step = DOUBLES.length();
+        DoubleVector acc0 = DoubleVector.zero(DOUBLES);
+        DoubleVector acc1 = DoubleVector.zero(DOUBLES);
+        int i = lo;
+        for (int bound = hi - 2 * step; i <= bound; i += 2 * step) {
+            acc0 = acc0.add(DoubleVector.fromArray(DOUBLES, a, i));
+            acc1 = acc1.add(DoubleVector.fromArray(DOUBLES, a, i + step));
+        }
+        double sum = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < hi; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    @Override
+    public double min(double[] a, int lo, int hi) {
+        int step = DOUBLES.length();
+        DoubleVector acc = DoubleVector.broadcast(DOUBLES, Double.POSITIVE_INFINITY);
+        int i = lo;
+        for (int bound = hi - step; i <= bound; i += step)
+            acc = acc.min(DoubleVector.fromArray(DOUBLES, a, i));
+        double min = acc.reduceLanes(VectorOperators.MIN);
+        for (; i < hi; i++)
+            min = Math.min(min, a[i]);
+        return min == 0.0 ? firstZero(a, lo, hi) : min;
+    }
+
+    @Override
+    public double max(double[] a, int lo, int hi) {
+        int step = DOUBLES.length();
+        DoubleVector acc = DoubleVector.broadcast(DOUBLES, Double.NEGATIVE_INFINITY);
+        int i = lo;
+        for (int bound = hi - step; i <= bound; i += step)
+            acc = acc.max(DoubleVector.fromArray(DOUBLES, a, i));
+        double max = acc.reduceLanes(VectorOperators.MAX);
+        for (; i < hi; i++)
+            max = Math.max(max, a[i]);
+        return max == 0.0 ? firstZero(a, lo, hi) : max;
+    }
+
+    // the first zero in a[lo..hi): the scalar loops of DRStats compare with
+    // < and >, which do not order -0.0 and 0.0, so when the minimum or
+    // maximum is zero they return whichever zero comes first
+    private static double firstZero(double[] a, int lo, int hi) {
+        int i = lo;
+        while (a[i] != 0.0)
+            i++;
+        return a[i];
+    }
+
+    @Override
+    public double sumOfSquaredDeviations(double[] a, int lo, int hi, double mean) {
+        int step = DOUBLES.length();
+        DoubleVector m = DoubleVector.broadcast(DOUBLES, mean);
+        DoubleVector acc0 = DoubleVector.zero(DOUBLES);
+        DoubleVector acc1 = DoubleVector.zero(DOUBLES);
+        int i = lo;
+        for (int bound = hi - 2 * step; i <= bound; i += 2 * step) {
+            DoubleVector d0 = DoubleVector.fromArray(DOUBLES, a, i).sub(m);
+            DoubleVector d1 = DoubleVector.fromArray(DOUBLES, a, i + step).sub(m);
+            acc0 = acc0.add(d0.mul(d0));
+            acc1 = acc1.add(d1.mul(d1));
+        }
+        double sum = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < hi; i++)
+            sum += (a[i] - mean) * (a[i] - mean);
+        return sum;
+    }
+
+    @Override
+    public long sum(int[] a, int lo, int hi) {
+        int step = LONGS.length();
+        LongVector acc = LongVector.zero(LONGS);
+        int i = lo;
+        for (int bound = hi - step; i <= bound; i += step) {
+            IntVector v = IntVector.fromArray(HALF_INTS, a, i);
+            acc = acc.add((LongVector) v.convertShape(VectorOperators.I2L, LONGS, 0));
+        }
+        long sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < hi; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    @Override
+    public int min(int[] a, int lo, int hi) {
+        int step = INTS.length();
+        IntVector acc = IntVector.broadcast(INTS, Integer.MAX_VALUE);
+        int i = lo;
+        for (int bound = hi - step; i <= bound; i += step)
+            acc = acc.min(IntVector.fromArray(INTS, a, i));
+        int min = acc.reduceLanes(VectorOperators.MIN);
+        for (; i < hi; i++)
+            min = Math.min(min, a[i]);
+        return min;
+    }
+
+    @Override
+    public int max(int[] a, int lo, int hi) {
+        int step = INTS.length();
+        IntVector acc = IntVector.broadcast(INTS, Integer.MIN_VALUE);
+        int i = lo;
+        for (int bound = hi - step; i <= bound; i += step)
+            acc = acc.max(IntVector.fromArray(INTS, a, i));
+        int max = acc.reduceLanes(VectorOperators.MAX);
+        for (; i < hi; i++)
+            max = Math.max(max, a[i]);
+        return max;
+    }
+
+    @Override
+    public double sumOfSquaredDeviations(int[] a, int lo, int hi, double mean) {
+        int step = DOUBLES.length();
+        DoubleVector m = DoubleVector.broadcast(DOUBLES, mean);
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        int i = lo;
+        for (int bound = hi - step; i <= bound; i += step) {
+            IntVector v = IntVector.fromArray(HALF_INTS, a, i);
+            DoubleVector d = ((DoubleVector) v.convertShape(VectorOperators.I2D, DOUBLES, 0)).sub(m);
+            acc = acc.add(d.mul(d));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < hi; i++)
+            sum += (a[i] - mean) * (a[i] - mean);
+        return sum;
+    }
+
+    /**
+     * Times the vector and scalar sums of n random doubles.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++)
+            a[i] = DRRandom.uniform();
+        DRStatsVector kernels = new DRStatsVector();
+        DROut.printf("%d double lanes, %d int lanes\n", DOUBLES.length(), INTS.length());
+
+        double vector = 0.0;
+        double scalar = 0.0;
+        long vectorNanos = Long.MAX_VALUE;
+        long scalarNanos = Long.MAX_VALUE;
+        for (int trial = 0; trial < 20; trial++) {
+            long start = System.nanoTime();
+            vector = kernels.sum(a, 0, n);
+            long middle = System.nanoTime();
+            scalar = 0.0;
+            for (int i = 0; i < n; i++)
+                scalar += a[i];
+            long end = System.nanoTime();
+            vectorNanos = Math.min(vectorNanos, middle - start);
+            scalarNanos = Math.min(scalarNanos, end - middle);
+        }
+        DROut.printf("sum: vector %.3f (%.1f ms), scalar %.3f (%.1f ms)\n",
+                     vector, vectorNanos / 1e6, scalar, scalarNanos / 1e6);
+    }
+}